@@ -0,0 +1,225 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package harmony;
+
+import harmony.internal.nls.Messages;
+
+import java.util.Arrays;
+
+/**
+ * Reduces numbers modulo a fixed modulus with the Barrett's algorithm. The
+ * reciprocal of the modulus is computed once, when the reducer is created,
+ * then every reduction costs two multiplications of the size of the modulus
+ * instead of a division, and works in buffers owned by the reducer.
+ * <p>
+ * A reducer is worth it when many numbers are reduced by the same modulus.
+ * As the buffers are shared by the calls, a reducer must not be used by
+ * several threads at the same time.
+ *
+ * @see BigInteger#mod(BigInteger)
+ */
+public final class BarrettReducer {
+
+    /** The modulus. */
+    private final BigInteger modulus;
+
+    /** The digits of the modulus. */
+    private final int m[];
+
+    /** The number of digits of the modulus. */
+    private final int k;
+
+    /** {@code mu = floor(2<sup>64k</sup> / m)}, with {@code k + 1} or {@code k + 2} digits. */
+    private final int mu[];
+
+    /** The number being reduced, {@code 2k} digits. */
+    private final int window[];
+
+    /** {@code window / 2<sup>32(k - 1)</sup> * mu}, the quotient is in its upper digits. */
+    private final int quotient[];
+
+    /** The estimated quotient times the modulus, at least {@code k + 2} digits. */
+    private final int product[];
+
+    /** The partial remainder, {@code k + 2} digits. */
+    private final int remainder[];
+
+    /** The work area of the multiplications. */
+    private final int work[];
+
+    /**
+     * Creates a reducer by the given modulus.
+     *
+     * @param modulus
+     *            the modulus.
+     * @throws NullPointerException
+     *             if {@code modulus == null}.
+     * @throws ArithmeticException
+     *             if {@code modulus <= 0}.
+     */
+    public BarrettReducer(BigInteger modulus) {
+        if (modulus.sign <= 0) {
+            // math.18=BigInteger: modulus not positive
+            throw new ArithmeticException(Messages.getString("math.18")); //$NON-NLS-1$
+        }
+        this.modulus = modulus;
+        k = modulus.numberLength;
+        m = new int[k];
+        System.arraycopy(modulus.digits, 0, m, 0, k);
+        BigInteger reciprocal = Division.reciprocal(modulus, (k << 6) - modulus.bitLength());
+        mu = new int[Math.max(k + 1, reciprocal.numberLength)];
+        System.arraycopy(reciprocal.digits, 0, mu, 0, reciprocal.numberLength);
+        window = new int[k << 1];
+        quotient = new int[mu.length + k + 1];
+        product = new int[(k << 1) + 2];
+        remainder = new int[k + 2];
+        work = new int[Math.max(Multiplication.karatsubaWorkLength(mu.length, k + 1),
+                Multiplication.karatsubaWorkLength(k + 1, k))];
+    }
+
+    /**
+     * Returns the modulus of this reducer.
+     *
+     * @return the modulus.
+     */
+    public BigInteger getModulus() {
+        return modulus;
+    }
+
+    /**
+     * Returns {@code x mod m}, with {@code m} the modulus of this reducer.
+     * The result is in the interval {@code [0, m)}, the same as
+     * {@code x.mod(m)}. Numbers of more than {@code 2k} digits, with
+     * {@code k} the digits of the modulus, are reduced {@code k} digits at a
+     * time from the most significant ones.
+     *
+     * @param x
+     *            the number to reduce.
+     * @return {@code x mod m}.
+     * @throws NullPointerException
+     *             if {@code x == null}.
+     */
+    public BigInteger reduce(BigInteger x) {
+        int n = x.numberLength;
+        if ((x.sign == 0) || ((x.sign > 0) && (x.compareTo(modulus) < 0))) {
+            return x;
+        }
+        int xDigits[] = x.digits;
+        int chunk;
+        if (n <= (k << 1)) {
+            chunk = n;
+        } else {
+            // the first window has between k + 1 and 2k digits, the next ones k
+            chunk = n - ((n - 1) / k - 1) * k;
+        }
+        int pos = n - chunk;
+        Arrays.fill(window, 0);
+        System.arraycopy(xDigits, pos, window, 0, chunk);
+        reduceWindow();
+        while (pos > 0) {
+            pos -= k;
+            System.arraycopy(remainder, 0, window, k, k);
+            System.arraycopy(xDigits, pos, window, 0, k);
+            reduceWindow();
+        }
+        int resDigits[] = new int[k];
+        System.arraycopy(remainder, 0, resDigits, 0, k);
+        BigInteger result = new BigInteger(1, k, resDigits);
+        result.cutOffLeadingZeroes();
+        if ((x.sign < 0) && (result.sign != 0)) {
+            return modulus.subtract(result);
+        }
+        return result;
+    }
+
+    /**
+     * Reduces the {@code 2k} digits of {@code window} and leaves the result
+     * in {@code remainder}.
+     */
+    private void reduceWindow() {
+        // q = floor(floor(w / B^(k-1)) * mu / B^(k+1)), which is w / m minus at most 3
+        if (k < Multiplication.whenUseKaratsuba) {
+            upperProduct();
+            lowerProduct();
+        } else {
+            Multiplication.karatsuba(mu, 0, mu.length, window, k - 1, k + 1,
+                    quotient, 0, work, 0);
+            Multiplication.karatsuba(quotient, k + 1, k + 1, m, 0, k, product, 0, work, 0);
+        }
+        // w - q * m < 4m < B^(k+2), so it's computed modulo B^(k+2)
+        int wLength = k << 1;
+        long borrow = 0;
+        for (int i = 0; i < k + 2; i++) {
+            borrow += ((i < wLength) ? (window[i] & 0xFFFFFFFFL) : 0) - (product[i] & 0xFFFFFFFFL);
+            remainder[i] = (int) borrow;
+            borrow >>= 32;
+        }
+        while ((remainder[k] != 0) || (remainder[k + 1] != 0)
+                || (Elementary.compareArrays(remainder, m, k) >= 0)) {
+            borrow = 0;
+            for (int i = 0; i < k + 2; i++) {
+                borrow += (remainder[i] & 0xFFFFFFFFL) - ((i < k) ? (m[i] & 0xFFFFFFFFL) : 0);
+                remainder[i] = (int) borrow;
+                borrow >>= 32;
+            }
+        }
+    }
+
+    /**
+     * Multiplies {@code floor(w / B^(k-1))} by {@code mu} skipping the
+     * partial products below the digit {@code k - 1}. They add less than
+     * {@code B^(k+1)}, so the quotient in the upper digits is one less at
+     * most.
+     */
+    private void upperProduct() {
+        int muLength = mu.length;
+        Arrays.fill(quotient, 0);
+        for (int i = 0; i <= k; i++) {
+            int q = window[k - 1 + i];
+            int carry = 0;
+            for (int j = Math.max(0, k - 1 - i); j < muLength; j++) {
+                long t = Multiplication.unsignedMultAddAdd(q, mu[j], quotient[i + j], carry);
+                quotient[i + j] = (int) t;
+                carry = (int) (t >>> 32);
+            }
+            quotient[i + muLength] = carry;
+        }
+    }
+
+    /**
+     * Computes the lower {@code k + 2} digits of the quotient in the upper
+     * digits of {@code quotient} times the modulus.
+     */
+    private void lowerProduct() {
+        int length = k + 2;
+        Arrays.fill(product, 0, length, 0);
+        for (int i = 0; i <= k; i++) {
+            int q = quotient[k + 1 + i];
+            int carry = 0;
+            int end = Math.min(k, length - i);
+            for (int j = 0; j < end; j++) {
+                long t = Multiplication.unsignedMultAddAdd(q, m[j], product[i + j], carry);
+                product[i + j] = (int) t;
+                carry = (int) (t >>> 32);
+            }
+            if (i + end < length) {
+                product[i + end] = carry;
+            }
+        }
+    }
+}
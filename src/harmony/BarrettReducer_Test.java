@@ -0,0 +1,58 @@
+package harmony;
+
+import org.junit.jupiter.api.Test;
+
+import static harmony.Multiplication_Test.jdk;
+import static harmony.Multiplication_Test.randomHarmony;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BarrettReducer_Test {
+
+    @Test
+    public void reduce_small_modulus() {
+        assertReduce(BigInteger.ONE, randomHarmony(100));
+        assertReduce(BigInteger.valueOf(7), randomHarmony(1000));
+        assertReduce(BigInteger.ONE.shiftLeft(32), randomHarmony(300));
+    }
+
+    @Test
+    public void reduce_products() {
+        for (int bits : new int[] { 64, 1000, 32 * 100, 32 * 700 + 3 }) {
+            BigInteger m = randomHarmony(bits);
+            BarrettReducer reducer = new BarrettReducer(m);
+            for (int i = 0; i < 10; i++) {
+                BigInteger x = randomHarmony(bits).multiply(randomHarmony(bits));
+                assertEquals(jdk(x).mod(jdk(m)), jdk(reducer.reduce(x)));
+            }
+        }
+    }
+
+    @Test
+    public void reduce_long_and_negative_numbers() {
+        BigInteger m = randomHarmony(32 * 20);
+        assertReduce(m, randomHarmony(32 * 41 + 5));
+        assertReduce(m, randomHarmony(32 * 200).negate());
+        assertReduce(m, m.multiply(randomHarmony(32 * 50)));
+        assertReduce(m, m.multiply(randomHarmony(32 * 50)).negate());
+        assertReduce(m, m.subtract(BigInteger.ONE));
+        assertReduce(m, BigInteger.ONE.negate());
+        assertReduce(m, BigInteger.ZERO);
+    }
+
+    @Test
+    public void reduce_powers_of_the_digit_base() {
+        BigInteger m = BigInteger.ONE.shiftLeft(32 * 9);
+        assertReduce(m, randomHarmony(32 * 30));
+        assertReduce(m.subtract(BigInteger.ONE), BigInteger.ONE.shiftLeft(32 * 18).subtract(BigInteger.ONE));
+    }
+
+    @Test
+    public void modulus_not_positive() {
+        assertThrows(ArithmeticException.class, () -> new BarrettReducer(BigInteger.ZERO));
+        assertThrows(ArithmeticException.class, () -> new BarrettReducer(BigInteger.TEN.negate()));
+    }
+
+    static void assertReduce(BigInteger m, BigInteger x) {
+        assertEquals(jdk(x).mod(jdk(m)), jdk(new BarrettReducer(m).reduce(x)));
+    }
+}
@@ -1076,10 +1076,59 @@ public class BigInteger extends Number implements Comparable<BigInteger>,
                     .longValue()));
         }
 
+        if (Math.min(val1.numberLength, val2.numberLength) >= HalfGcd.whenUseHalfGcd) {
+            return HalfGcd.gcd(val1, val2);
+        }
         return Division.gcdBinary(val1.copy(), val2.copy());
 
     }
 
+    /**
+     * Returns the greatest common divisor of {@code this} and {@code val}
+     * together with the Bezout's coefficients {@code s} and {@code t} such
+     * that {@code gcd = s * this + t * val}, computed in a single pass of the
+     * extended Euclid's algorithm. The coefficients are the ones of the
+     * Euclid's algorithm, so {@code |s| <= |val| / gcd} and
+     * {@code |t| <= |this| / gcd} if both numbers are not zero. If
+     * {@code this == 0} and {@code val == 0} then zero is returned with null
+     * coefficients, otherwise the greatest common divisor is positive.
+     * <p>
+     * When {@code gcd == 1}, {@code s} is the inverse of {@code this} modulo
+     * {@code val} and {@code t} the inverse of {@code val} modulo
+     * {@code this}, up to a multiple of the modulus.
+     *
+     * @param val
+     *            value with which the greatest common divisor is computed.
+     * @return the array {@code gcd, s, t}.
+     * @throws NullPointerException
+     *             if {@code val == null}.
+     * @see #gcd(BigInteger)
+     * @see #modInverse(BigInteger)
+     */
+    public BigInteger[] extendedGcd(BigInteger val) {
+        BigInteger val1 = this.abs();
+        BigInteger val2 = val.abs();
+        BigInteger res[];
+        if (val2.sign == 0) {
+            res = new BigInteger[] { val1, valueOf(sign), ZERO };
+        } else if (val1.sign == 0) {
+            res = new BigInteger[] { val2, ZERO, valueOf(val.sign) };
+        } else {
+            if (Math.min(val1.numberLength, val2.numberLength) >= HalfGcd.whenUseHalfGcdInverse) {
+                res = HalfGcd.extendedGcd(val1, val2);
+            } else {
+                res = Division.extendedGcd(val1, val2);
+            }
+            if (sign < 0) {
+                res[1] = res[1].negate();
+            }
+            if (val.sign < 0) {
+                res[2] = res[2].negate();
+            }
+        }
+        return res;
+    }
+
     /**
      * Returns a new {@code BigInteger} whose value is {@code this * val}.
      *
@@ -1100,6 +1149,30 @@ public class BigInteger extends Number implements Comparable<BigInteger>,
         return Multiplication.multiply(this, val);
     }
 
+    /**
+     * Returns a new {@code BigInteger} whose value is {@code this * val}.
+     * When both factors are large, the independent sub-products of the
+     * multiplication are computed concurrently in the common
+     * {@code ForkJoinPool}, using more CPU time to reduce the elapsed time.
+     * Smaller products are computed as in {@link #multiply(BigInteger)}.
+     *
+     * @param val
+     *            value to be multiplied with {@code this}.
+     * @return {@code this * val}.
+     * @throws NullPointerException
+     *             if {@code val == null}.
+     */
+    public BigInteger parallelMultiply(BigInteger val) {
+        // This let us to throw NullPointerException when val == null
+        if (val.sign == 0) {
+            return ZERO;
+        }
+        if (sign == 0) {
+            return ZERO;
+        }
+        return Multiplication.parallelMultiply(this, val);
+    }
+
     /**
      * Returns a new {@code BigInteger} whose value is {@code this ^ exp}.
      *
@@ -1305,10 +1378,11 @@ public class BigInteger extends Number implements Comparable<BigInteger>,
         }
 
         // From now on: (m > 1)
-        BigInteger res = Division.modInverseMontgomery(abs().mod(m), m);
-        if (res.sign == 0) {
-            // math.19=BigInteger not invertible.
-            throw new ArithmeticException(Messages.getString("math.19")); //$NON-NLS-1$
+        BigInteger res;
+        if (m.numberLength >= HalfGcd.whenUseHalfGcdInverse) {
+            res = HalfGcd.modInverse(abs().mod(m), m);
+        } else {
+            res = Division.modInverseLehmer(abs().mod(m), m);
         }
 
         res = ((sign < 0) ? m.subtract(res) : res);
@@ -1363,6 +1437,127 @@ public class BigInteger extends Number implements Comparable<BigInteger>,
         return res;
     }
 
+    /**
+     * Returns a new {@code BigInteger} whose value is {@code this^exponent mod
+     * m}, computed in a time which doesn't depend on the bits of the
+     * exponent or of {@code this}, as needed for private keys. The modulus
+     * {@code m} must be positive and odd. It's slower than
+     * {@link #modPow(BigInteger, BigInteger)}.
+     *
+     * @param exponent
+     *            the secret exponent.
+     * @param m
+     *            the modulus.
+     * @return {@code this^exponent mod m}.
+     * @throws NullPointerException
+     *             if {@code m == null} or {@code exponent == null}.
+     * @throws ArithmeticException
+     *             if {@code m <= 0} or {@code m} is even, or if
+     *             {@code exponent<0} and this is not relatively prime to
+     *             {@code m}.
+     * @see MontgomeryContext#modPowSecret(BigInteger, BigInteger)
+     */
+    public BigInteger modPowSecret(BigInteger exponent, BigInteger m) {
+        return new MontgomeryContext(m).modPowSecret(this, exponent);
+    }
+
+    /**
+     * Returns a new {@code BigInteger} whose value is the product of
+     * {@code bases[i]^exponents[i]} modulo {@code m}, such as {@code g^a * h^b
+     * mod p} when a signature is verified. If the modulus is odd the powers
+     * are computed at the same time and share their squares, which is
+     * faster than multiplying the results of
+     * {@link #modPow(BigInteger, BigInteger)}.
+     *
+     * @param bases
+     *            the bases.
+     * @param exponents
+     *            the exponents, one per base.
+     * @param m
+     *            the modulus.
+     * @return the product of the powers modulo {@code m}.
+     * @throws NullPointerException
+     *             if {@code m}, an array or one of their elements is
+     *             {@code null}.
+     * @throws IllegalArgumentException
+     *             if the arrays have different lengths.
+     * @throws ArithmeticException
+     *             if {@code m <= 0}, or if an exponent is negative and its base
+     *             is not relatively prime to {@code m}.
+     * @see MontgomeryContext#multiModPow(BigInteger[], BigInteger[])
+     */
+    public static BigInteger multiModPow(BigInteger bases[], BigInteger exponents[],
+            BigInteger m) {
+        if (m.sign <= 0) {
+            // math.18=BigInteger: modulus not positive
+            throw new ArithmeticException(Messages.getString("math.18")); //$NON-NLS-1$
+        }
+        if (m.testBit(0)) {
+            return new MontgomeryContext(m).multiModPow(bases, exponents);
+        }
+        if (bases.length != exponents.length) {
+            // math.1E=The number of bases and exponents is different
+            throw new IllegalArgumentException(Messages.getString("math.1E")); //$NON-NLS-1$
+        }
+        BigInteger res = BigInteger.ONE.mod(m);
+        for (int i = 0; i < bases.length; i++) {
+            res = res.multiply(bases[i].modPow(exponents[i], m)).mod(m);
+        }
+        return res;
+    }
+
+    /**
+     * Returns the inverses {@code values[i]^-1 mod m}, such as the
+     * denominators of many points of an elliptic curve. The product of all
+     * the values is inverted once, and the inverses are obtained from the
+     * partial products with {@code 3(n - 1)} modular multiplications, which
+     * is faster than calling {@link #modInverse(BigInteger)} for every value.
+     * The multiplications use the Montgomery's reduction if the modulus is
+     * odd, the Barrett's reduction otherwise.
+     *
+     * @param values
+     *            the numbers to invert.
+     * @param m
+     *            the modulus.
+     * @return the array of the inverses, in the order of the values.
+     * @throws NullPointerException
+     *             if {@code m}, {@code values} or one of its elements is
+     *             {@code null}.
+     * @throws ArithmeticException
+     *             if {@code m <= 0}, or if a value is not relatively prime to
+     *             {@code m}.
+     * @see MontgomeryContext#modInverse(BigInteger[])
+     */
+    public static BigInteger[] batchModInverse(BigInteger values[], BigInteger m) {
+        if (m.sign <= 0) {
+            // math.18=BigInteger: modulus not positive
+            throw new ArithmeticException(Messages.getString("math.18")); //$NON-NLS-1$
+        }
+        if (m.testBit(0)) {
+            return new MontgomeryContext(m).modInverse(values);
+        }
+        int n = values.length;
+        BigInteger res[] = new BigInteger[n];
+        if (n == 0) {
+            return res;
+        }
+        BarrettReducer reducer = new BarrettReducer(m);
+        // products[i] = values[0] * ... * values[i] mod m
+        BigInteger products[] = new BigInteger[n];
+        for (int i = 0; i < n; i++) {
+            res[i] = reducer.reduce(values[i]);
+            products[i] = (i == 0) ? res[0] : reducer.reduce(products[i - 1].multiply(res[i]));
+        }
+        BigInteger inverse = products[n - 1].modInverse(m);
+        for (int i = n - 1; i > 0; i--) {
+            BigInteger value = res[i];
+            res[i] = reducer.reduce(inverse.multiply(products[i - 1]));
+            inverse = reducer.reduce(inverse.multiply(value));
+        }
+        res[0] = inverse;
+        return res;
+    }
+
     /**
      * Returns a new {@code BigInteger} whose value is {@code this mod m}. The
      * modulus {@code m} must be positive. The result is guaranteed to be in the
@@ -1403,6 +1598,25 @@ public class BigInteger extends Number implements Comparable<BigInteger>,
         return Primality.isProbablePrime(abs(), certainty);
     }
 
+    /**
+     * Tests whether this {@code BigInteger} is probably prime with the
+     * Baillie-PSW test: a strong probable prime test to base {@code 2} and a
+     * strong Lucas probable prime test. No composite number is known to pass
+     * it, and none exists below {@code 2^64}, but unlike
+     * {@link #isProbablePrime(int)} there is no proven bound on the error.
+     * It costs about three modular exponentiations whatever the size, while
+     * {@code isProbablePrime} runs from two Miller-Rabin rounds for numbers of
+     * thousands of bits to dozens of rounds for small numbers and a high
+     * certainty. If {@code false} is returned, then this is definitely
+     * composite.
+     *
+     * @return {@code true}, if {@code this} is probably prime, {@code false}
+     *         otherwise.
+     */
+    public boolean isProbablePrimeBPSW() {
+        return Primality.bailliePSW(abs());
+    }
+
     /**
      * Returns the smallest integer x > {@code this} which is probably prime as
      * a {@code BigInteger} instance. The probability that the returned {@code
@@ -0,0 +1,316 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package harmony;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * Measures the break points between the algorithms on the running JVM and
+ * saves them in the properties file read by {@link Thresholds}, which is
+ * the first command line argument if there is one.
+ * <p>
+ * Every break point is the smallest size from which the algorithm above it
+ * wins several times in a row. The lower break points are measured first,
+ * so the sub-products of a higher algorithm already use the calibrated
+ * lower ones.
+ */
+class Calibration {
+
+    static final Random random = new Random();
+
+    /** The minimal duration of a timed sample, in nanoseconds. */
+    static final long sampleNanos = 10000000L;
+
+    /** The number of timed samples of each algorithm, the fastest one is kept. */
+    static final int samples = 7;
+
+    /** The number of consecutive sizes the algorithm above a break point must win. */
+    static final int winsInARow = 3;
+
+    /** The number of untimed comparisons before a scan. */
+    static final int warmUps = 3;
+
+    public static void main(String[] args) throws IOException {
+        File file = (args.length > 0) ? new File(args[0]) : Thresholds.file();
+        Properties thresholds = new Properties();
+        // the higher algorithms are not used until their break points are measured
+        Multiplication.whenUseToomCook3Square = Integer.MAX_VALUE;
+        Multiplication.whenUseNTT = Integer.MAX_VALUE;
+        Division.whenUseNewton = Integer.MAX_VALUE;
+
+        Multiplication.whenUseKaratsuba = crossover(8, 512, new Comparison() {
+            void first() {
+                Multiplication.whenUseKaratsuba = n + 1;
+                Multiplication.karatsuba(x, y);
+            }
+            void second() {
+                Multiplication.whenUseKaratsuba = n;
+                Multiplication.karatsuba(x, y);
+            }
+        });
+        save(thresholds, "karatsubaThreshold", Multiplication.whenUseKaratsuba); //$NON-NLS-1$
+
+        Multiplication.whenUseKaratsubaSquare = crossover(8, 1024, new Comparison() {
+            void first() {
+                Multiplication.whenUseKaratsubaSquare = n + 1;
+                Multiplication.square(x);
+            }
+            void second() {
+                Multiplication.whenUseKaratsubaSquare = n;
+                Multiplication.square(x);
+            }
+        });
+        save(thresholds, "karatsubaSquareThreshold", Multiplication.whenUseKaratsubaSquare); //$NON-NLS-1$
+
+        Multiplication.whenUseToomCook3 = crossover(64, 4096, new Comparison() {
+            void prepare() {
+                super.prepare();
+                // the sub-products use Toom-Cook from the candidate break point, as they would with it saved
+                Multiplication.whenUseToomCook3 = n;
+            }
+            void first() {
+                Multiplication.karatsuba(x, y);
+            }
+            void second() {
+                Multiplication.toomCook3(x, y);
+            }
+        });
+        save(thresholds, "toomCook3Threshold", Multiplication.whenUseToomCook3); //$NON-NLS-1$
+
+        Multiplication.whenUseToomCook3Square = crossover(64, 4096, new Comparison() {
+            void first() {
+                Multiplication.whenUseToomCook3Square = n + 1;
+                Multiplication.square(x);
+            }
+            void second() {
+                Multiplication.whenUseToomCook3Square = n;
+                Multiplication.square(x);
+            }
+        });
+        save(thresholds, "toomCook3SquareThreshold", Multiplication.whenUseToomCook3Square); //$NON-NLS-1$
+
+        Multiplication.whenUseNTT = crossover(512, 32768, new Comparison() {
+            void first() {
+                Multiplication.toomCook3(x, y);
+            }
+            void second() {
+                NumberTheoreticTransform.multiply(x, y);
+            }
+        });
+        save(thresholds, "nttThreshold", Multiplication.whenUseNTT); //$NON-NLS-1$
+
+        // Division.divide only uses Burnikel-Ziegler for a quotient of burnikelZieglerOffset digits
+        int from = Math.max(16, Division.burnikelZieglerOffset);
+        Division.whenUseBurnikelZiegler = crossover(from, 2048, new Comparison() {
+            void prepare() {
+                x = random(n << 1);
+                y = random(n);
+                // the recursion ends at the candidate break point, as it would with it saved
+                Division.whenUseBurnikelZiegler = n;
+            }
+            void first() {
+                int quotLength = x.numberLength - y.numberLength + 1;
+                Division.knuthDivide(new int[quotLength], quotLength,
+                        x.digits, x.numberLength, y.digits, y.numberLength);
+            }
+            void second() {
+                Division.burnikelZiegler(x, y);
+            }
+        });
+        save(thresholds, "burnikelZieglerThreshold", Division.whenUseBurnikelZiegler); //$NON-NLS-1$
+
+        // the divisor and the quotient of Division.divide both reach the Newton's break point
+        Division.whenUseNewton = crossover(2048, 65536, new Comparison() {
+            void prepare() {
+                x = random(n << 1);
+                y = random(n);
+            }
+            void first() {
+                Division.burnikelZiegler(x, y);
+            }
+            void second() {
+                Division.newtonDivide(x, y);
+            }
+        });
+        save(thresholds, "newtonThreshold", Division.whenUseNewton); //$NON-NLS-1$
+
+        HalfGcd.halfGcdBase = crossover(16, 1024, new Comparison() {
+            int s;
+            void prepare() {
+                super.prepare();
+                s = (Math.max(x.bitLength(), y.bitLength()) >> 1) + 1;
+                // the recursion ends at the candidate break point, as it would with it saved
+                HalfGcd.halfGcdBase = n;
+            }
+            void first() {
+                new HalfGcd.Reduction(x, y).reduce(s);
+            }
+            void second() {
+                HalfGcd.halfGcd(x, y);
+            }
+        });
+        save(thresholds, "halfGcdBaseThreshold", HalfGcd.halfGcdBase); //$NON-NLS-1$
+
+        HalfGcd.whenUseHalfGcd = crossover(64, 4096, new Comparison() {
+            void first() {
+                Division.gcdBinary(x.copy(), y.copy());
+            }
+            void second() {
+                HalfGcd.gcd(x, y);
+            }
+        });
+        save(thresholds, "halfGcdThreshold", HalfGcd.whenUseHalfGcd); //$NON-NLS-1$
+
+        HalfGcd.whenUseHalfGcdInverse = crossover(256, 8192, new Comparison() {
+            void prepare() {
+                super.prepare();
+                if (x.compareTo(y) > 0) {
+                    BigInteger swap = x;
+                    x = y;
+                    y = swap;
+                }
+            }
+            void first() {
+                Division.extendedGcdLehmer(x, y);
+            }
+            void second() {
+                HalfGcd.extendedGcd(x, y);
+            }
+        });
+        save(thresholds, "halfGcdInverseThreshold", HalfGcd.whenUseHalfGcdInverse); //$NON-NLS-1$
+
+        OutputStream out = new FileOutputStream(file);
+        try {
+            thresholds.store(out, "Break points in digits calibrated on " //$NON-NLS-1$
+                    + System.getProperty("java.vm.name") + " " //$NON-NLS-1$ //$NON-NLS-2$
+                    + System.getProperty("java.vm.version")); //$NON-NLS-1$
+        } finally {
+            out.close();
+        }
+        print("Saved in " + file); //$NON-NLS-1$
+    }
+
+    /**
+     * Two algorithms to compare on the numbers {@code x} and {@code y},
+     * whose size is given by {@code n}.
+     */
+    abstract static class Comparison {
+
+        int n;
+
+        BigInteger x;
+
+        BigInteger y;
+
+        /** Runs the algorithm used below the break point. */
+        abstract void first();
+
+        /** Runs the algorithm used from the break point. */
+        abstract void second();
+
+        /** Sets the operands, by default two random numbers of {@code n} digits. */
+        void prepare() {
+            x = random(n);
+            y = random(n);
+        }
+    }
+
+    /**
+     * Returns the smallest size in {@code [from, to]} from which the second
+     * algorithm is faster than the first one for {@link #winsInARow}
+     * consecutive sizes, or
+     * {@code to} if there is no such size.
+     */
+    static int crossover(int from, int to, Comparison comparison) {
+        // lets the compiler optimize both algorithms before timing them
+        comparison.n = from;
+        comparison.prepare();
+        for (int i = 0; i < warmUps; i++) {
+            ratio(comparison);
+        }
+        int firstWin = -1;
+        int wins = 0;
+        for (int n = from; n <= to; n += Math.max(1, n >> 3)) {
+            comparison.n = n;
+            comparison.prepare();
+            double ratio = ratio(comparison);
+            print("  n=" + n + " " + ratio); //$NON-NLS-1$ //$NON-NLS-2$
+            if (ratio < 1) {
+                if (wins++ == 0) {
+                    firstWin = n;
+                }
+                if (wins == winsInARow) {
+                    return firstWin;
+                }
+            } else {
+                wins = 0;
+            }
+        }
+        return to;
+    }
+
+    /**
+     * Returns the time of the second algorithm divided by the time of the
+     * first one. The samples of both algorithms are interleaved, and each
+     * one lasts at least {@link #sampleNanos}.
+     */
+    static double ratio(Comparison comparison) {
+        int repetitions = 1;
+        while (elapsed(comparison, false, repetitions) < sampleNanos) {
+            repetitions <<= 1;
+        }
+        long first = Long.MAX_VALUE;
+        long second = Long.MAX_VALUE;
+        for (int i = 0; i < samples; i++) {
+            first = Math.min(first, elapsed(comparison, false, repetitions));
+            second = Math.min(second, elapsed(comparison, true, repetitions));
+        }
+        return (double) second / first;
+    }
+
+    static long elapsed(Comparison comparison, boolean second, int repetitions) {
+        long start = System.nanoTime();
+        for (int i = 0; i < repetitions; i++) {
+            if (second) {
+                comparison.second();
+            } else {
+                comparison.first();
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    /** @return a random positive number of exactly {@code n} digits */
+    static BigInteger random(int n) {
+        return new BigInteger(n << 5, random).setBit((n << 5) - 1);
+    }
+
+    static void save(Properties thresholds, String key, int value) {
+        print(key + "=" + value); //$NON-NLS-1$
+        thresholds.setProperty(key, Integer.toString(value));
+    }
+
+    static void print(Object o) {
+        System.out.println(o);
+    }
+}
@@ -19,6 +19,8 @@ package harmony;
 
 import harmony.internal.nls.Messages;
 
+import java.util.Arrays;
+
 /**
  * Static library that provides all operations related with division and modular
  * arithmetic to {@link BigInteger}. Some methods are provided in both mutable
@@ -42,6 +44,54 @@ import harmony.internal.nls.Messages;
  */
 class Division {
 
+    /**
+     * Break point in digits (number of {@code int} elements) of the divisor
+     * between Burnikel-Ziegler and Knuth's division.
+     */
+    static int whenUseBurnikelZiegler = Thresholds.get("burnikelZieglerThreshold", 160); //$NON-NLS-1$
+
+    /**
+     * The minimal difference in digits (number of {@code int} elements)
+     * between the lengths of the dividend and the divisor to use the
+     * Burnikel-Ziegler division.
+     */
+    static int burnikelZieglerOffset = Thresholds.get("burnikelZieglerOffset", 40); //$NON-NLS-1$
+
+    /**
+     * Break point in digits (number of {@code int} elements) of the divisor
+     * and of the quotient between the Newton's reciprocal division and the
+     * Burnikel-Ziegler one.
+     */
+    static int whenUseNewton = Thresholds.get("newtonThreshold", 65536); //$NON-NLS-1$
+
+    /**
+     * Divides the array 'a' by the array 'b' and gets the quotient and the
+     * remainder. Huge divisions multiply by the reciprocal of the divisor,
+     * large ones use the Burnikel-Ziegler algorithm, the other ones the
+     * Knuth's division algorithm.
+     *
+     * @param quot the quotient, or {@code null} if only the remainder is needed
+     * @param quotLength the quotient's length
+     * @param a the dividend
+     * @param aLength the dividend's length
+     * @param b the divisor
+     * @param bLength the divisor's length
+     * @return the remainder, at least {@code bLength} digits long
+     */
+    static int[] divide(int quot[], int quotLength, int a[], int aLength,
+                        int b[], int bLength) {
+        if ((bLength >= whenUseNewton) && (aLength - bLength >= whenUseNewton)) {
+            return toDigits(quot, newtonDivide(new BigInteger(1, aLength, a),
+                    new BigInteger(1, bLength, b)), bLength);
+        }
+        if ((bLength >= whenUseBurnikelZiegler)
+                && (aLength - bLength >= burnikelZieglerOffset)) {
+            return toDigits(quot, burnikelZiegler(new BigInteger(1, aLength, a),
+                    new BigInteger(1, bLength, b)), bLength);
+        }
+        return knuthDivide(quot, quotLength, a, aLength, b, bLength);
+    }
+
     /**
      * Divides the array 'a' by the array 'b' and gets the quotient and the
      * remainder. Implements the Knuth's division algorithm. See D. Knuth, The
@@ -56,7 +106,7 @@ class Division {
      * @param bLength the divisor's length
      * @return the remainder
      */
-    static int[] divide(int quot[], int quotLength, int a[], int aLength,
+    static int[] knuthDivide(int quot[], int quotLength, int a[], int aLength,
                         int b[], int bLength) {
 
         int normA[] = new int[aLength + 1]; // the normalized dividend
@@ -166,6 +216,255 @@ class Division {
         return normA;
     }
 
+    /**
+     * Copies the quotient of a division to {@code quot} and returns the
+     * remainder in the form of
+     * {@link #divide(int[], int, int[], int, int[], int)}.
+     *
+     * @param quot the quotient, or {@code null} if only the remainder is needed
+     * @param quotAndRem the quotient and the remainder
+     * @param bLength the divisor's length
+     * @return the remainder, {@code bLength + 1} digits long
+     */
+    private static int[] toDigits(int quot[], BigInteger[] quotAndRem, int bLength) {
+        BigInteger quotient = quotAndRem[0];
+        BigInteger remainder = quotAndRem[1];
+        if ((quot != null) && (quotient.sign != 0)) {
+            System.arraycopy(quotient.digits, 0, quot, 0, quotient.numberLength);
+        }
+        int rem[] = new int[bLength + 1];
+        if (remainder.sign != 0) {
+            System.arraycopy(remainder.digits, 0, rem, 0, remainder.numberLength);
+        }
+        return rem;
+    }
+
+    /**
+     * Computes the quotient and the remainder of two positive numbers with
+     * the recursive algorithm of C. Burnikel and J. Ziegler, "Fast Recursive
+     * Division", MPI-I-98-1-022. The divisor is normalized and split in
+     * blocks of {@code n} digits, then the dividend is divided one block at a
+     * time with {@link #divide2n1n(BigInteger, BigInteger, int)}, whose cost
+     * is that of a few multiplications of {@code n} digits.
+     *
+     * @return {@code [a / b, a % b]}
+     */
+    static BigInteger[] burnikelZiegler(BigInteger a, BigInteger b) {
+        int bLength = b.numberLength;
+        // b is padded to m blocks of j digits, m being a power of two
+        int m = 1 << (32 - Integer.numberOfLeadingZeros(bLength / whenUseBurnikelZiegler));
+        int j = (bLength + m - 1) / m;
+        int n = j * m;
+        int nBits = n << 5;
+        int sigma = Math.max(0, nBits - b.bitLength());
+        BigInteger normB = b.shiftLeft(sigma);
+        BigInteger normA = a.shiftLeft(sigma);
+        // normA has t blocks of n digits and the highest bit of them is zero
+        int t = Math.max((normA.bitLength() + nBits) / nBits, 2);
+
+        int quotDigits[] = new int[(t - 1) * n];
+        BigInteger z = Multiplication.slice(normA, (t - 2) * n, t * n);
+        BigInteger remainder;
+        for (int i = t - 2; ; i--) {
+            BigInteger[] quotAndRem = divide2n1n(z, normB, n);
+            BigInteger quotient = quotAndRem[0];
+            if (quotient.sign != 0) {
+                System.arraycopy(quotient.digits, 0, quotDigits, i * n, quotient.numberLength);
+            }
+            if (i == 0) {
+                remainder = quotAndRem[1];
+                break;
+            }
+            z = quotAndRem[1].shiftLeft(nBits).add(
+                    Multiplication.slice(normA, (i - 1) * n, i * n));
+        }
+        BigInteger quotient = new BigInteger(1, quotDigits.length, quotDigits);
+        quotient.cutOffLeadingZeroes();
+        return new BigInteger[] { quotient, remainder.shiftRight(sigma) };
+    }
+
+    /**
+     * Computes the quotient and the remainder of two positive numbers
+     * multiplying by an approximation of the reciprocal of the divisor,
+     * obtained with the Newton's iteration. The cost is that of a few
+     * multiplications of the size of the quotient.
+     *
+     * @return {@code [a / b, a % b]}
+     * @see #reciprocal(BigInteger, int)
+     */
+    static BigInteger[] newtonDivide(BigInteger a, BigInteger b) {
+        // 32 guard bits keep the error of the quotient in a few units
+        int precision = a.bitLength() - b.bitLength() + 32;
+        return divideByReciprocal(a, b, approximateReciprocal(b, precision), precision);
+    }
+
+    /**
+     * Divides by {@code b} knowing an approximation of its reciprocal. The
+     * quotient is estimated from the upper digits of {@code a} and the
+     * reciprocal, then corrected with the remainder.
+     *
+     * @param a the dividend, {@code 0 <= a < 2<sup>bitLength(b) + precision</sup>}
+     * @param b the divisor, {@code b > 0}
+     * @param reciprocal an approximation of
+     *        {@code 2<sup>bitLength(b) + precision</sup> / b} within a few units
+     * @param precision the precision of the reciprocal in bits
+     * @return {@code [a / b, a % b]}
+     */
+    static BigInteger[] divideByReciprocal(BigInteger a, BigInteger b,
+            BigInteger reciprocal, int precision) {
+        int bBits = b.bitLength();
+        // the lower bits of a change the estimate by less than one
+        int cut = Math.max(0, bBits - 64);
+        BigInteger quotient = a.shiftRight(cut).multiply(reciprocal)
+                .shiftRight(bBits + precision - cut);
+        BigInteger remainder = a.subtract(quotient.multiply(b));
+        while (remainder.sign < 0) {
+            quotient = quotient.subtract(BigInteger.ONE);
+            remainder = remainder.add(b);
+        }
+        while (remainder.compareTo(b) >= 0) {
+            quotient = quotient.add(BigInteger.ONE);
+            remainder = remainder.subtract(b);
+        }
+        return new BigInteger[] { quotient, remainder };
+    }
+
+    /**
+     * Returns {@code floor(2<sup>bitLength(b) + precision</sup> / b)}, the
+     * reciprocal of {@code b} with {@code precision} bits after the first one.
+     * It is computed with the Newton's iteration and a final correction.
+     *
+     * @param b a positive number
+     * @param precision a non-negative number of bits
+     * @return the reciprocal of {@code b}
+     */
+    static BigInteger reciprocal(BigInteger b, int precision) {
+        BigInteger reciprocal = approximateReciprocal(b, precision);
+        BigInteger remainder = BigInteger.ONE.shiftLeft(b.bitLength() + precision)
+                .subtract(b.multiply(reciprocal));
+        while (remainder.sign < 0) {
+            reciprocal = reciprocal.subtract(BigInteger.ONE);
+            remainder = remainder.add(b);
+        }
+        while (remainder.compareTo(b) >= 0) {
+            reciprocal = reciprocal.add(BigInteger.ONE);
+            remainder = remainder.subtract(b);
+        }
+        return reciprocal;
+    }
+
+    /**
+     * Returns an approximation of {@code 2<sup>bitLength(b) + precision</sup> / b}
+     * within a few units. Only the upper {@code precision + 64} bits of
+     * {@code b} are used. Each Newton's step
+     * {@code y = y + y * (1 - b * y)} doubles the precision of the
+     * reciprocal computed with half the precision.
+     */
+    private static BigInteger approximateReciprocal(BigInteger b, int precision) {
+        int bBits = b.bitLength();
+        int bitsUsed = Math.min(bBits, precision + 64);
+        BigInteger upperB = b.shiftRight(bBits - bitsUsed);
+        if (precision <= (whenUseBurnikelZiegler << 5)) {
+            return burnikelZiegler(BigInteger.ONE.shiftLeft(bitsUsed + precision), upperB)[0];
+        }
+        int half = (precision >> 1) + 32;
+        BigInteger y = approximateReciprocal(upperB, half);
+        // error = 2^(bitsUsed + half) * (1 - upperB * y / 2^(bitsUsed + half))
+        BigInteger error = BigInteger.ONE.shiftLeft(bitsUsed + half).subtract(upperB.multiply(y));
+        return y.shiftLeft(precision - half).add(
+                y.multiply(error).shiftRight(bitsUsed + (half << 1) - precision));
+    }
+
+    /**
+     * Divides a number of {@code 2n} digits by a normalized number of
+     * {@code n} digits, being the quotient smaller than
+     * {@code 2<sup>32n</sup>}. The division is split in two
+     * {@link #divide3n2n(BigInteger, BigInteger, int)} of half the size.
+     *
+     * @param a the dividend, {@code a < b * 2<sup>32n</sup>}
+     * @param b the divisor, its highest bit is the bit {@code 32n - 1}
+     * @param n the size of the divisor in digits
+     * @return {@code [a / b, a % b]}
+     */
+    private static BigInteger[] divide2n1n(BigInteger a, BigInteger b, int n) {
+        if (((n & 1) != 0) || (n < whenUseBurnikelZiegler)) {
+            return schoolbookDivide(a, b);
+        }
+        int half = n >> 1;
+        BigInteger[] quotAndRem1 = divide3n2n(Multiplication.slice(a, half, n << 1), b, half);
+        BigInteger a4 = Multiplication.slice(a, 0, half);
+        BigInteger[] quotAndRem2 = divide3n2n(
+                quotAndRem1[1].shiftLeft(half << 5).add(a4), b, half);
+        return new BigInteger[] {
+                quotAndRem1[0].shiftLeft(half << 5).add(quotAndRem2[0]),
+                quotAndRem2[1] };
+    }
+
+    /**
+     * Divides a number of {@code 3n} digits by a normalized number of
+     * {@code 2n} digits, being the quotient smaller than
+     * {@code 2<sup>32n</sup>}. The quotient is estimated dividing by the
+     * upper half of the divisor, and corrected with one product by its lower
+     * half.
+     *
+     * @param a the dividend, {@code a < b * 2<sup>32n</sup>}
+     * @param b the divisor, its highest bit is the bit {@code 64n - 1}
+     * @param n the size of the halves of the divisor in digits
+     * @return {@code [a / b, a % b]}
+     */
+    private static BigInteger[] divide3n2n(BigInteger a, BigInteger b, int n) {
+        int nBits = n << 5;
+        BigInteger a12 = Multiplication.slice(a, n, 3 * n);
+        BigInteger a3 = Multiplication.slice(a, 0, n);
+        BigInteger b1 = Multiplication.slice(b, n, n << 1);
+        BigInteger b2 = Multiplication.slice(b, 0, n);
+        BigInteger quotient;
+        BigInteger remainder;
+        if (Multiplication.slice(a, n << 1, 3 * n).compareTo(b1) < 0) {
+            BigInteger[] quotAndRem = divide2n1n(a12, b1, n);
+            quotient = quotAndRem[0];
+            remainder = quotAndRem[1];
+        } else {
+            // quotient = 2^nBits - 1, remainder = a12 - quotient * b1
+            quotient = BigInteger.ONE.shiftLeft(nBits).subtract(BigInteger.ONE);
+            remainder = a12.subtract(b1.shiftLeft(nBits)).add(b1);
+        }
+        remainder = remainder.shiftLeft(nBits).add(a3).subtract(quotient.multiply(b2));
+        // the estimated quotient exceeds the right one at most by two
+        while (remainder.sign < 0) {
+            remainder = remainder.add(b);
+            quotient = quotient.subtract(BigInteger.ONE);
+        }
+        return new BigInteger[] { quotient, remainder };
+    }
+
+    /**
+     * Divides two non-negative numbers with the Knuth's division algorithm.
+     *
+     * @return {@code [a / b, a % b]}
+     */
+    private static BigInteger[] schoolbookDivide(BigInteger a, BigInteger b) {
+        int aLength = a.numberLength;
+        int bLength = b.numberLength;
+        if ((a.sign == 0) || (aLength < bLength)
+                || ((aLength == bLength) && (Elementary.compareArrays(a.digits, b.digits, aLength) < 0))) {
+            return new BigInteger[] { BigInteger.ZERO, a };
+        }
+        int quotLength = aLength - bLength + 1;
+        int quot[] = new int[quotLength];
+        int rem[];
+        if (bLength == 1) {
+            rem = new int[] { divideArrayByInt(quot, a.digits, aLength, b.digits[0]) };
+        } else {
+            rem = knuthDivide(quot, quotLength, a.digits, aLength, b.digits, bLength);
+        }
+        BigInteger quotient = new BigInteger(1, quotLength, quot);
+        BigInteger remainder = new BigInteger(1, bLength, rem);
+        quotient.cutOffLeadingZeroes();
+        remainder.cutOffLeadingZeroes();
+        return new BigInteger[] { quotient, remainder };
+    }
+
     /**
      * Divides an array by an integer value. Implements the Knuth's division
      * algorithm. See D. Knuth, The Art of Computer Programming, vol. 2.
@@ -473,103 +772,10 @@ class Division {
 
 
 
-    /**
-     * Calculates a.modInverse(p) Based on: Savas, E; Koc, C "The Montgomery Modular
-     * Inverse - Revised"
-     */
-    static BigInteger modInverseMontgomery(BigInteger a, BigInteger p) {
-
-        if (a.sign == 0){
-            // ZERO hasn't inverse
-            // math.19: BigInteger not invertible
-            throw new ArithmeticException(Messages.getString("math.19"));
-        }
-
-
-        if (!p.testBit(0)){
-            // montgomery inverse require even modulo
-            return modInverseHars(a, p);
-        }
-
-        int m = p.numberLength * 32;
-        // PRE: a \in [1, p - 1]
-        BigInteger u, v, r, s;
-        u = p.copy();  // make copy to use inplace method
-        v = a.copy();
-        int max = Math.max(v.numberLength, u.numberLength);
-        r = new BigInteger(1, 1, new int[max + 1]);
-        s = new BigInteger(1, 1, new int[max + 1]);
-        s.digits[0] = 1;
-        // s == 1 && v == 0
-
-        int k = 0;
-
-        int lsbu = u.getLowestSetBit();
-        int lsbv = v.getLowestSetBit();
-        int toShift;
-
-        if (lsbu > lsbv) {
-            BitLevel.inplaceShiftRight(u, lsbu);
-            BitLevel.inplaceShiftRight(v, lsbv);
-            BitLevel.inplaceShiftLeft(r, lsbv);
-            k += lsbu - lsbv;
-        } else {
-            BitLevel.inplaceShiftRight(u, lsbu);
-            BitLevel.inplaceShiftRight(v, lsbv);
-            BitLevel.inplaceShiftLeft(s, lsbu);
-            k += lsbv - lsbu;
-        }
-
-        r.sign = 1;
-        while (v.signum() > 0) {
-            // INV v >= 0, u >= 0, v odd, u odd (except last iteration when v is even (0))
-
-            while (u.compareTo(v) > BigInteger.EQUALS) {
-                Elementary.inplaceSubtract(u, v);
-                toShift = u.getLowestSetBit();
-                BitLevel.inplaceShiftRight(u, toShift);
-                Elementary.inplaceAdd(r, s);
-                BitLevel.inplaceShiftLeft(s, toShift);
-                k += toShift;
-            }
-
-            while (u.compareTo(v) <= BigInteger.EQUALS) {
-                Elementary.inplaceSubtract(v, u);
-                if (v.signum() == 0)
-                    break;
-                toShift = v.getLowestSetBit();
-                BitLevel.inplaceShiftRight(v, toShift);
-                Elementary.inplaceAdd(s, r);
-                BitLevel.inplaceShiftLeft(r, toShift);
-                k += toShift;
-            }
-        }
-        if (!u.isOne()){
-            // in u is stored the gcd
-            // math.19: BigInteger not invertible.
-            throw new ArithmeticException(Messages.getString("math.19"));
-        }
-        if (r.compareTo(p) >= BigInteger.EQUALS) {
-            Elementary.inplaceSubtract(r, p);
-        }
-
-        r = p.subtract(r);
-
-        // Have pair: ((BigInteger)r, (Integer)k) where r == a^(-1) * 2^k mod (module)		
-        int n1 = calcN(p);
-        if (k > m) {
-            r = monPro(r, BigInteger.ONE, p, n1);
-            k = k - m;
-        }
-
-        r = monPro(r, BigInteger.getPowerOfTwo(m - k), p, n1);
-        return r;
-    }
-
     /**
      * Calculate the first digit of the inverse
      */
-    private static int calcN(BigInteger a) {
+    static int calcN(BigInteger a) {
         long m0 = a.digits[0] & 0xFFFFFFFFL;
         long n2 = 1L; // this is a'[0]
         long powerOfTwo = 2L;
@@ -584,84 +790,320 @@ class Division {
     }
 
     static BigInteger squareAndMultiply(BigInteger x2, BigInteger a2, BigInteger exponent,BigInteger modulus, int n2  ){
-        BigInteger res = x2;
+        int modulusLen = modulus.numberLength;
+        int modulusDigits[] = modulus.digits;
+        int res[] = toDigits(x2, modulusLen);
+        int a[] = toDigits(a2, modulusLen);
+        int t[] = new int[monSquareWorkLength(modulusLen)];
         for (int i = exponent.bitLength() - 1; i >= 0; i--) {
-            res = monPro(res,res,modulus, n2);
+            monSquare(res, modulusDigits, modulusLen, n2, t, res);
             if (BitLevel.testBit(exponent, i)) {
-                res = monPro(res, a2, modulus, n2);
+                monPro(res, a, modulusDigits, modulusLen, n2, t, res);
             }
         }
-        return res;
+        BigInteger result = new BigInteger(1, modulusLen, res);
+        result.cutOffLeadingZeroes();
+        return result;
     }
 
     /**
-     * Implements the "Shifting Euclidean modular inverse algorithm".
-     * "Laszlo Hars - Modular Inverse Algorithms Without Multiplications
-     * for Cryptographic Applications"
+     * Returns {@code a<sup>-1</sup> mod m} from the extended Euclidean
+     * algorithm of {@link #extendedGcdLehmer(BigInteger, BigInteger)}.
      *
      * @see BigInteger#modInverse(BigInteger)
      * @param a
+     *            a number in the interval {@code [0, m)}
+     * @param m
+     *            a modulus greater than one
+     * @return {@code a<sup>-1</sup> mod m}
+     * @throws ArithmeticException
+     *             if {@code a} is not relatively prime to {@code m}.
+     */
+    static BigInteger modInverseLehmer(BigInteger a, BigInteger m) {
+        // PRE: (0 <= a < m) and (m > 1)
+        BigInteger gcdAndCoefficient[] = extendedGcdLehmer(a, m);
+        if (!gcdAndCoefficient[0].isOne()) {
+            // math.19=BigInteger not invertible.
+            throw new ArithmeticException(Messages.getString("math.19")); //$NON-NLS-1$
+        }
+        BigInteger x = gcdAndCoefficient[1];
+        return (x.sign < 0) ? x.add(m) : x;
+    }
+
+    /**
+     * Returns the greatest common divisor {@code g} of two positive numbers
+     * and the Bezout's coefficients {@code x} and {@code y} such that
+     * {@code g = x * a + y * b}, in a single pass of
+     * {@link #extendedGcdLehmer(BigInteger, BigInteger)}.
+     *
+     * @see BigInteger#extendedGcd(BigInteger)
+     * @param a
+     *            a positive number
+     * @param b
      *            a positive number
+     * @return the array {@code g, x, y}
+     */
+    static BigInteger[] extendedGcd(BigInteger a, BigInteger b) {
+        // PRE: (a > 0) and (b > 0)
+        if (a.compareTo(b) > 0) {
+            BigInteger res[] = extendedGcd(b, a);
+            return new BigInteger[] { res[0], res[2], res[1] };
+        }
+        BigInteger gcdAndCoefficient[] = extendedGcdLehmer(a, b);
+        BigInteger g = gcdAndCoefficient[0];
+        BigInteger x = gcdAndCoefficient[1];
+        // g - x * a is an exact multiple of b
+        return new BigInteger[] { g, x, g.subtract(x.multiply(a)).divide(b) };
+    }
+
+    /**
+     * Implements the extended Euclidean algorithm with the Lehmer's method, as
+     * in the algorithm L of D. Knuth, The Art of Computer Programming, vol. 2,
+     * section 4.5.2. The quotients are computed from the leading 31 bits of
+     * the remainders while they are the same as the quotients of the whole
+     * numbers, then the remainders and the cofactors of {@code a} are updated
+     * by the product of these quotients at once, about 30 bits at a time.
+     * All the numbers are in digit arrays of the length of {@code m}, so
+     * only the rare multiple-precision divisions allocate.
+     *
+     * @param a
+     *            a number in the interval {@code [0, m]}
      * @param m
-     *            a positive modulus
-     */
-    static BigInteger modInverseHars(BigInteger a, BigInteger m) {
-        // PRE: (a > 0) and (m > 0)
-        BigInteger u, v, r, s, temp;
-        // u = MAX(a,m), v = MIN(a,m)
-        if (a.compareTo(m) == BigInteger.LESS) {
-            u = m;
-            v = a;
-            r = BigInteger.ZERO;
-            s = BigInteger.ONE;
-        } else {
-            v = m;
-            u = a;
-            s = BigInteger.ZERO;
-            r = BigInteger.ONE;
-        }
-        int uLen = u.bitLength();
-        int vLen = v.bitLength();
-        int f = uLen - vLen;
-
-        while (vLen > 1) {
-            if (u.sign == v.sign) {
-                u = u.subtract(v.shiftLeft(f));
-                r = r.subtract(s.shiftLeft(f));
-            } else {
-                u = u.add(v.shiftLeft(f));
-                r = r.add(s.shiftLeft(f));
-            }
-            uLen = u.abs().bitLength();
-            vLen = v.abs().bitLength();
-            f = uLen - vLen;
-            if (f < 0) {
-                // SWAP(u,v)
+     *            a positive number
+     * @return the array {@code g, x} with {@code g = gcd(a, m)} and
+     *         {@code g = x * a (mod m)}, {@code x} being the Bezout's
+     *         coefficient of the Euclidean algorithm
+     */
+    static BigInteger[] extendedGcdLehmer(BigInteger a, BigInteger m) {
+        // PRE: (0 <= a <= m) and (m > 0)
+        int length = m.numberLength + 1;
+        // the remainders u > v, and the cofactors of a: u = +-xu * a, v = -+xv * a (mod m)
+        int u[] = new int[length];
+        int v[] = new int[length];
+        int xu[] = new int[length];
+        int xv[] = new int[length];
+        int nextU[] = new int[length];
+        int nextV[] = new int[length];
+        int nextXu[] = new int[length];
+        int nextXv[] = new int[length];
+        int temp[];
+        System.arraycopy(m.digits, 0, u, 0, m.numberLength);
+        System.arraycopy(a.digits, 0, v, 0, a.numberLength);
+        int uLength = m.numberLength;
+        int vLength = a.sign == 0 ? 0 : a.numberLength;
+        int xuLength = 0;
+        int xvLength = 1;
+        xv[0] = 1;
+        // u = sign * xu * a (mod m)
+        boolean negative = true;
+
+        while (vLength > 0) {
+            int shift = Math.max(0, bitLength(u, uLength) - 31);
+            long uHat = leadingBits(u, uLength, shift);
+            long vHat = leadingBits(v, vLength, shift);
+            // the first row gives the next u, the second one the next v
+            long aa = 1;
+            long bb = 0;
+            long cc = 0;
+            long dd = 1;
+            int steps = 0;
+            while (vHat != 0) {
+                long q;
+                if (shift == 0) {
+                    // u and v are exact, all the quotients are right
+                    q = uHat / vHat;
+                } else {
+                    if ((vHat + cc == 0) || (vHat + dd == 0)) {
+                        break;
+                    }
+                    q = (uHat + aa) / (vHat + cc);
+                    if (q != (uHat + bb) / (vHat + dd)) {
+                        break;
+                    }
+                }
+                long t = aa - q * cc;
+                aa = cc;
+                cc = t;
+                t = bb - q * dd;
+                bb = dd;
+                dd = t;
+                t = uHat - q * vHat;
+                uHat = vHat;
+                vHat = t;
+                steps++;
+            }
+            if (steps == 0) {
+                // the quotient doesn't fit in 31 bits, it's computed with the whole numbers
+                BigInteger quotAndRem[] = valueOf(u, uLength).divideAndRemainder(
+                        valueOf(v, vLength));
+                BigInteger nextXvValue = quotAndRem[0].multiply(valueOf(xv, xvLength))
+                        .add(valueOf(xu, xuLength));
                 temp = u;
                 u = v;
                 v = temp;
-                // SWAP(r,s)
-                temp = r;
-                r = s;
-                s = temp;
-
-                f = -f;
-                vLen = uLen;
+                uLength = vLength;
+                vLength = copy(quotAndRem[1], v);
+                temp = xu;
+                xu = xv;
+                xv = temp;
+                xuLength = xvLength;
+                xvLength = copy(nextXvValue, xv);
+                negative = !negative;
+                continue;
             }
+            // the signs of the coefficients alternate with the number of steps
+            int nextULength;
+            if ((steps & 1) == 0) {
+                nextULength = subtractProducts(nextU, aa, u, uLength, -bb, v, vLength);
+                vLength = subtractProducts(nextV, dd, v, vLength, -cc, u, uLength);
+            } else {
+                nextULength = subtractProducts(nextU, bb, v, vLength, -aa, u, uLength);
+                vLength = subtractProducts(nextV, cc, u, uLength, -dd, v, vLength);
+                negative = !negative;
+            }
+            uLength = nextULength;
+            int nextXuLength = addProducts(nextXu, Math.abs(aa), xu, xuLength,
+                    Math.abs(bb), xv, xvLength);
+            xvLength = addProducts(nextXv, Math.abs(cc), xu, xuLength,
+                    Math.abs(dd), xv, xvLength);
+            xuLength = nextXuLength;
+            temp = u;
+            u = nextU;
+            nextU = temp;
+            temp = v;
+            v = nextV;
+            nextV = temp;
+            temp = xu;
+            xu = nextXu;
+            nextXu = temp;
+            temp = xv;
+            xv = nextXv;
+            nextXv = temp;
+        }
+        // u is the gcd
+        BigInteger x = valueOf(xu, xuLength);
+        return new BigInteger[] { valueOf(u, uLength), negative ? x.negate() : x };
+    }
+
+    /**
+     * Computes {@code r = a * x - b * y}, a result which is known to be
+     * non-negative and not longer than the operands.
+     *
+     * @return the length of {@code r} without leading zeros
+     */
+    private static int subtractProducts(int r[], long a, int x[], int xLength,
+            long b, int y[], int yLength) {
+        // PRE: (0 <= a, b < 2^32)
+        int length = Math.max(xLength, yLength);
+        long productX = 0;
+        long productY = 0;
+        long borrow = 0;
+        for (int i = 0; i < length; i++) {
+            productX += a * ((i < xLength) ? (x[i] & 0xFFFFFFFFL) : 0);
+            productY += b * ((i < yLength) ? (y[i] & 0xFFFFFFFFL) : 0);
+            borrow += (productX & 0xFFFFFFFFL) - (productY & 0xFFFFFFFFL);
+            r[i] = (int) borrow;
+            borrow >>= 32;
+            productX >>>= 32;
+            productY >>>= 32;
+        }
+        return normalizedLength(r, length);
+    }
+
+    /**
+     * Computes {@code r = a * x + b * y}, with one more digit than the
+     * longest operand.
+     *
+     * @return the length of {@code r} without leading zeros
+     */
+    private static int addProducts(int r[], long a, int x[], int xLength,
+            long b, int y[], int yLength) {
+        // PRE: (0 <= a, b < 2^32)
+        int length = Math.max(xLength, yLength);
+        long productX = 0;
+        long productY = 0;
+        long carry = 0;
+        for (int i = 0; i < length; i++) {
+            productX += a * ((i < xLength) ? (x[i] & 0xFFFFFFFFL) : 0);
+            productY += b * ((i < yLength) ? (y[i] & 0xFFFFFFFFL) : 0);
+            carry += (productX & 0xFFFFFFFFL) + (productY & 0xFFFFFFFFL);
+            r[i] = (int) carry;
+            carry >>>= 32;
+            productX >>>= 32;
+            productY >>>= 32;
         }
-        if (v.sign == 0) {
-            return BigInteger.ZERO;
+        r[length] = (int) (carry + productX + productY);
+        return normalizedLength(r, length + 1);
+    }
+
+    /** @return the length of the first {@code length} digits of {@code x} without leading zeros */
+    private static int normalizedLength(int x[], int length) {
+        while ((length > 0) && (x[length - 1] == 0)) {
+            length--;
+        }
+        return length;
+    }
+
+    /** @return the bit length of the first {@code length} digits of {@code x}, which are normalized */
+    private static int bitLength(int x[], int length) {
+        return (length << 5) - Integer.numberOfLeadingZeros(x[length - 1]);
+    }
+
+    /** @return the 31 bits of {@code x} from the bit {@code shift} */
+    private static long leadingBits(int x[], int length, int shift) {
+        int i = shift >> 5;
+        if (i >= length) {
+            return 0;
         }
-        if (v.sign < 0) {
-            s = s.negate();
+        int bits = shift & 31;
+        long value = (x[i] & 0xFFFFFFFFL) >>> bits;
+        if ((bits != 0) && (i + 1 < length)) {
+            value |= (x[i + 1] & 0xFFFFFFFFL) << (32 - bits);
         }
-        if (s.compareTo(m) == BigInteger.GREATER) {
-            return s.subtract(m);
+        return value & 0x7FFFFFFFL;
+    }
+
+    /** @return the number whose digits are the first {@code length} ones of {@code digits} */
+    private static BigInteger valueOf(int digits[], int length) {
+        return (length == 0) ? BigInteger.ZERO : new BigInteger(1, length, digits);
+    }
+
+    /** Copies the digits of {@code x} in {@code digits} and returns their length. */
+    private static int copy(BigInteger x, int digits[]) {
+        if (x.sign == 0) {
+            return 0;
         }
-        if (s.sign < 0) {
-            return s.add(m);
+        System.arraycopy(x.digits, 0, digits, 0, x.numberLength);
+        return x.numberLength;
+    }
+
+    /**
+     * The largest exponent lengths in bits for each window width of
+     * {@link #slidingWindow(BigInteger, BigInteger, BigInteger, BigInteger, int)},
+     * starting by the width 1. They are the break points used by the JDK,
+     * where the squares saved by a wider window pay for its table of odd powers.
+     */
+    private static final int windowWidthLimits[] = { 7, 25, 81, 241, 673, 1793 };
+
+    /**
+     * The largest window width of
+     * {@link #fixedWindow(BigInteger, BigInteger, BigInteger, BigInteger, int)},
+     * as every window reads the whole table of {@code 2<sup>width</sup>} powers.
+     */
+    private static final int maxFixedWindowWidth = 6;
+
+    /**
+     * Returns the number of exponent bits scanned at a time by
+     * {@link #slidingWindow(BigInteger, BigInteger, BigInteger, BigInteger, int)},
+     * which precomputes {@code 2<sup>width - 1</sup>} odd powers of the base.
+     */
+    static int windowWidth(int exponentBits) {
+        int width = 1;
+        while ((width <= windowWidthLimits.length)
+                && (exponentBits > windowWidthLimits[width - 1])) {
+            width++;
         }
-        return s; // a^(-1) mod m
+        return width;
     }
 
     /*Implements the Montgomery modular exponentiation based in <i>The sliding windows algorithm and the Mongomery
@@ -671,17 +1113,25 @@ class Division {
      *                           BigInteger)
      */
     static BigInteger slidingWindow(BigInteger x2, BigInteger a2, BigInteger exponent,BigInteger modulus, int n2){
+        int modulusLen = modulus.numberLength;
+        int modulusDigits[] = modulus.digits;
+        // every product is computed in these arrays, nothing is allocated in the loop
+        int t[] = new int[monSquareWorkLength(modulusLen)];
+        int width = windowWidth(exponent.bitLength());
         // fill odd low pows of a2
-        BigInteger pows[] = new BigInteger[8];
-        BigInteger res = x2;
+        int pows[][] = new int[1 << (width - 1)][];
+        int res[] = toDigits(x2, modulusLen);
         int lowexp;
-        BigInteger x3;
         int acc3;
-        pows[0] = a2;
-
-        x3 = monPro(a2,a2,modulus,n2);
-        for (int i = 1; i <= 7; i++){
-            pows[i] = monPro(pows[i-1],x3,modulus,n2) ;
+        pows[0] = toDigits(a2, modulusLen);
+
+        if (pows.length > 1) {
+            int x3[] = new int[modulusLen];
+            monSquare(pows[0], modulusDigits, modulusLen, n2, t, x3);
+            for (int i = 1; i < pows.length; i++){
+                pows[i] = new int[modulusLen];
+                monPro(pows[i-1], x3, modulusDigits, modulusLen, n2, t, pows[i]);
+            }
         }
 
         for (int i = exponent.bitLength()-1; i>=0;i--){
@@ -689,7 +1139,7 @@ class Division {
                 lowexp = 1;
                 acc3 = i;
 
-                for(int j = Math.max(i-3,0);j <= i-1 ;j++) {
+                for(int j = Math.max(i-width+1,0);j <= i-1 ;j++) {
                     if (BitLevel.testBit(exponent,j)) {
                         if (j<acc3) {
                             acc3 = j;
@@ -701,22 +1151,204 @@ class Division {
                 }
 
                 for(int j = acc3; j <= i; j++) {
-                    res = monPro(res,res,modulus,n2);
+                    monSquare(res, modulusDigits, modulusLen, n2, t, res);
                 }
-                res = monPro(pows[(lowexp-1)>>1], res, modulus,n2);
+                monPro(pows[(lowexp-1)>>1], res, modulusDigits, modulusLen, n2, t, res);
                 i = acc3 ;
             }else{
-                res = monPro(res, res, modulus, n2) ;
+                monSquare(res, modulusDigits, modulusLen, n2, t, res);
+            }
+        }
+        BigInteger result = new BigInteger(1, modulusLen, res);
+        result.cutOffLeadingZeroes();
+        return result;
+    }
+
+    /**
+     * Implements the Montgomery modular exponentiation with fixed windows,
+     * for secret exponents. The same operations are done on the same memory
+     * whatever the digits of the exponent and the base: every window is
+     * {@code width} squares and a multiplication, even by one, the power of
+     * the window is read scanning the whole table with masks, and the final
+     * subtractions of the Montgomery products are done with masks too. The
+     * number of bits scanned only depends on the lengths of the exponent
+     * and the modulus in digits.
+     *
+     * @param x2 the Montgomery form of one
+     * @param a2 the Montgomery form of the base
+     * @return the power, already converted back from the Montgomery form
+     * @see #slidingWindow(BigInteger, BigInteger, BigInteger, BigInteger, int)
+     */
+    static BigInteger fixedWindow(BigInteger x2, BigInteger a2, BigInteger exponent,
+            BigInteger modulus, int n2) {
+        int modulusLen = modulus.numberLength;
+        int modulusDigits[] = modulus.digits;
+        int bits = Math.max(exponent.numberLength, modulusLen) << 5;
+        int width = fixedWindowWidth(bits);
+        int t[] = new int[(modulusLen << 1) + 1];
+        // pows[i] = a2^i, for every window value
+        int pows[][] = new int[1 << width][];
+        pows[0] = toDigits(x2, modulusLen);
+        pows[1] = toDigits(a2, modulusLen);
+        for (int i = 2; i < pows.length; i++) {
+            pows[i] = new int[modulusLen];
+            monProduct(pows[i - 1], pows[1], modulusDigits, modulusLen, n2, t);
+            constantTimeSubtraction(t, modulusDigits, modulusLen, pows[i]);
+        }
+        int res[] = new int[modulusLen];
+        int power[] = new int[modulusLen];
+        int pos = ((bits - 1) / width) * width;
+        select(pows, windowBits(exponent, pos, width), res);
+        while (pos > 0) {
+            pos -= width;
+            for (int j = 0; j < width; j++) {
+                Arrays.fill(t, 0);
+                Multiplication.square(res, modulusLen, t);
+                monReduction(t, modulusDigits, modulusLen, n2);
+                constantTimeSubtraction(t, modulusDigits, modulusLen, res);
+            }
+            select(pows, windowBits(exponent, pos, width), power);
+            monProduct(res, power, modulusDigits, modulusLen, n2, t);
+            constantTimeSubtraction(t, modulusDigits, modulusLen, res);
+        }
+        // multiplying by 1 converts back from the Montgomery form
+        Arrays.fill(power, 0);
+        power[0] = 1;
+        monProduct(res, power, modulusDigits, modulusLen, n2, t);
+        constantTimeSubtraction(t, modulusDigits, modulusLen, res);
+        BigInteger result = new BigInteger(1, modulusLen, res);
+        result.cutOffLeadingZeroes();
+        return result;
+    }
+
+    /**
+     * Computes the product of the powers {@code a2s[i]<sup>exponents[i]</sup>}
+     * with the Straus's interleaved sliding windows: every exponent is
+     * split in windows as in
+     * {@link #slidingWindow(BigInteger, BigInteger, BigInteger, BigInteger, int)},
+     * each base has its own table of odd powers, and all of them share the
+     * same squares of the accumulator, so there are as many squares as bits
+     * in the longest exponent instead of the sum of the lengths.
+     *
+     * @param x2 the Montgomery form of one
+     * @param a2s the Montgomery forms of the bases
+     * @param exponents the non-negative exponents
+     * @return the Montgomery form of the product
+     * @see BigInteger#multiModPow(BigInteger[], BigInteger[], BigInteger)
+     */
+    static BigInteger multiSlidingWindow(BigInteger x2, BigInteger a2s[], BigInteger exponents[],
+            BigInteger modulus, int n2) {
+        int modulusLen = modulus.numberLength;
+        int modulusDigits[] = modulus.digits;
+        int t[] = new int[monSquareWorkLength(modulusLen)];
+        int count = a2s.length;
+        int pows[][][] = new int[count][][];
+        // windows[k][j] is the odd value of the window of the exponent k ending at the bit j
+        int windows[][] = new int[count][];
+        int bitLength = 0;
+        for (int k = 0; k < count; k++) {
+            BigInteger exponent = exponents[k];
+            int expBits = exponent.bitLength();
+            bitLength = Math.max(bitLength, expBits);
+            int width = windowWidth(expBits);
+            windows[k] = new int[expBits];
+            for (int i = expBits - 1; i >= 0; i--) {
+                if (BitLevel.testBit(exponent, i)) {
+                    int low = i;
+                    int value = 1;
+                    for (int j = i - 1; j >= Math.max(i - width + 1, 0); j--) {
+                        if (BitLevel.testBit(exponent, j)) {
+                            value = (value << (low - j)) | 1;
+                            low = j;
+                        }
+                    }
+                    windows[k][low] = value;
+                    i = low;
+                }
+            }
+            pows[k] = new int[1 << (width - 1)][];
+            pows[k][0] = toDigits(a2s[k], modulusLen);
+            if (pows[k].length > 1) {
+                int x3[] = new int[modulusLen];
+                monSquare(pows[k][0], modulusDigits, modulusLen, n2, t, x3);
+                for (int i = 1; i < pows[k].length; i++) {
+                    pows[k][i] = new int[modulusLen];
+                    monPro(pows[k][i - 1], x3, modulusDigits, modulusLen, n2, t, pows[k][i]);
+                }
+            }
+        }
+        int res[] = toDigits(x2, modulusLen);
+        boolean isOne = true;
+        for (int i = bitLength - 1; i >= 0; i--) {
+            if (!isOne) {
+                monSquare(res, modulusDigits, modulusLen, n2, t, res);
+            }
+            for (int k = 0; k < count; k++) {
+                if ((i < windows[k].length) && (windows[k][i] != 0)) {
+                    monPro(pows[k][windows[k][i] >> 1], res, modulusDigits, modulusLen, n2, t, res);
+                    isOne = false;
+                }
+            }
+        }
+        BigInteger result = new BigInteger(1, modulusLen, res);
+        result.cutOffLeadingZeroes();
+        return result;
+    }
+
+    /**
+     * Returns the window width of
+     * {@link #fixedWindow(BigInteger, BigInteger, BigInteger, BigInteger, int)}
+     * for an exponent of {@code bits} bits, the one which minimizes the
+     * number of multiplications per window plus the size of the table.
+     */
+    static int fixedWindowWidth(int bits) {
+        int width = 1;
+        while ((width < maxFixedWindowWidth) && (bits / (width + 1) + (1 << (width + 1))
+                < bits / width + (1 << width))) {
+            width++;
+        }
+        return width;
+    }
+
+    /**
+     * Returns the {@code width} bits of the exponent from the bit
+     * {@code pos}. Only the position decides which digits are read.
+     */
+    private static int windowBits(BigInteger exponent, int pos, int width) {
+        int digits[] = exponent.digits;
+        int length = exponent.numberLength;
+        int index = pos >> 5;
+        long word = (index < length) ? (digits[index] & 0xFFFFFFFFL) : 0;
+        if (index + 1 < length) {
+            word |= (long) digits[index + 1] << 32;
+        }
+        return (int) (word >>> (pos & 31)) & ((1 << width) - 1);
+    }
+
+    /**
+     * Copies {@code pows[index]} to {@code res} reading every element of
+     * {@code pows}, so the memory accesses don't depend on {@code index}.
+     */
+    private static void select(int pows[][], int index, int res[]) {
+        Arrays.fill(res, 0);
+        for (int i = 0; i < pows.length; i++) {
+            // all ones if i == index, zero otherwise
+            int mask = ((i ^ index) - 1) >> 31;
+            int pow[] = pows[i];
+            for (int j = 0; j < res.length; j++) {
+                res[j] |= pow[j] & mask;
             }
         }
-        return res;
     }
 
     /**
      * Performs modular exponentiation using the Montgomery Reduction. It
-     * requires that all parameters be positive and the modulus be odd. >
+     * requires that all parameters be positive and the modulus be odd.
+     * The constants of the modulus are computed by a new
+     * {@link MontgomeryContext}, which callers with a fixed modulus can keep.
      *
      * @see BigInteger#modPow(BigInteger, BigInteger)
+     * @see MontgomeryContext#modPow(BigInteger, BigInteger)
      * @see #monPro(BigInteger, BigInteger, BigInteger, int)
      * @see #slidingWindow(BigInteger, BigInteger, BigInteger, BigInteger,
      *                      int)
@@ -726,22 +1358,7 @@ class Division {
     static BigInteger oddModPow(BigInteger base, BigInteger exponent,
                                 BigInteger modulus) {
         // PRE: (base > 0), (exponent > 0), (modulus > 0) and (odd modulus)
-        int k = (modulus.numberLength << 5); // r = 2^k
-        // n-residue of base [base * r (mod modulus)]
-        BigInteger a2 = base.shiftLeft(k).mod(modulus);
-        // n-residue of base [1 * r (mod modulus)]
-        BigInteger x2 = BigInteger.getPowerOfTwo(k).mod(modulus);
-        BigInteger res;
-        // Compute (modulus[0]^(-1)) (mod 2^32) for odd modulus
-
-        int n2 = calcN(modulus);
-        if( modulus.numberLength == 1 ){
-            res = squareAndMultiply(x2,a2, exponent, modulus,n2);
-        } else {
-            res = slidingWindow(x2, a2, exponent, modulus, n2);
-        }
-
-        return monPro(res, BigInteger.ONE, modulus, n2);
+        return new MontgomeryContext(modulus).pow(base, exponent);
     }
 
     /**
@@ -812,14 +1429,192 @@ class Division {
         return res;
     }
 
-    private static void monReduction(int[] res, BigInteger modulus, int n2) {
+    /**
+     * Implements the Montgomery Product of two integers represented by
+     * {@code int} arrays. The arrays are supposed in <i>little
+     * endian</i> notation.
+     *
+     * @param a The first factor of the product.
+     * @param b The second factor of the product.
+     * @param modulus The modulus of the operations. Z<sub>modulus</sub>.
+     * @param n2 The digit modulus'[0].
+     * @ar.org.fitc.ref "C. K. Koc - Analyzing and Comparing Montgomery
+     *                  Multiplication Algorithms"
+     * @see #monPro(int[], int[], int[], int, int, int[], int[])
+     */
+    static BigInteger monPro(BigInteger a, BigInteger b, BigInteger modulus, int n2) {
+        int modulusLen = modulus.numberLength;
+        int res[] = new int[modulusLen];
+        monPro(toDigits(a, modulusLen), toDigits(b, modulusLen), modulus.digits,
+                modulusLen, n2, new int[modulusLen + 1], res);
+        BigInteger result = new BigInteger(1, modulusLen, res);
+        result.cutOffLeadingZeroes();
+        return result;
+    }
+
+    /**
+     * Computes the Montgomery Product {@code a * b * 2<sup>-32n</sup> mod m}
+     * of two numbers of {@code n} digits, multiplying and reducing in the same
+     * pass over the digits, as in the finely integrated operand scanning
+     * method. Each pass adds {@code a} times two digits of {@code b} and clears
+     * the two lowest digits with their multiples of {@code m}, so the
+     * partial result {@code t} is read and written once for every 64-bit
+     * word of {@code b}. Nothing is allocated.
+     *
+     * @param a the first factor, {@code n} digits
+     * @param b the second factor, {@code n} digits, it can be {@code a}
+     * @param m the digits of the odd modulus
+     * @param n the number of digits of the modulus
+     * @param n2 the digit {@code -m<sup>-1</sup> mod 2<sup>32</sup>}
+     * @param t the work area, {@code n + 1} digits
+     * @param res the {@code n} digits of the product, less than {@code m}; it
+     *        can be {@code a} or {@code b}
+     * @see #calcN(BigInteger)
+     */
+    static void monPro(int a[], int b[], int m[], int n, int n2, int t[], int res[]) {
+        monProduct(a, b, m, n, n2, t);
+        finalSubtraction(t, m, n, res);
+    }
+
+    /**
+     * Computes the Montgomery product of {@code a} and {@code b} in the
+     * {@code n + 1} lower digits of {@code t}, before the final
+     * subtraction, so it's less than {@code 2m}. There are no branches
+     * which depend on the values of the digits.
+     *
+     * @see #monPro(int[], int[], int[], int, int, int[], int[])
+     */
+    private static void monProduct(int a[], int b[], int m[], int n, int n2, int t[]) {
+        // PRE: one factor is less than m, the other one less than 2^(32n)
+        Arrays.fill(t, 0, n + 1, 0);
+        long a0 = a[0] & 0xFFFFFFFFL;
+        long m0 = m[0] & 0xFFFFFFFFL;
+        int i = 0;
+        for (; i + 1 < n; i += 2) {
+            long b0 = b[i] & 0xFFFFFFFFL;
+            long b1 = b[i + 1] & 0xFFFFFFFFL;
+            // the digits 0 and 1 give the multipliers u0 and u1 of m
+            long c0 = a0 * b0 + (t[0] & 0xFFFFFFFFL);
+            long u0 = ((int) c0 * n2) & 0xFFFFFFFFL;
+            long c1 = u0 * m0 + (c0 & 0xFFFFFFFFL);
+            long previousA = a0;
+            long previousM = m0;
+            long aJ = a[1] & 0xFFFFFFFFL;
+            long mJ = m[1] & 0xFFFFFFFFL;
+            c0 = aJ * b0 + (t[1] & 0xFFFFFFFFL) + (c0 >>> 32);
+            c1 = u0 * mJ + (c0 & 0xFFFFFFFFL) + (c1 >>> 32);
+            long c2 = previousA * b1 + (c1 & 0xFFFFFFFFL);
+            long u1 = ((int) c2 * n2) & 0xFFFFFFFFL;
+            long c3 = u1 * previousM + (c2 & 0xFFFFFFFFL);
+            for (int j = 2; j < n; j++) {
+                previousA = aJ;
+                previousM = mJ;
+                aJ = a[j] & 0xFFFFFFFFL;
+                mJ = m[j] & 0xFFFFFFFFL;
+                c0 = aJ * b0 + (t[j] & 0xFFFFFFFFL) + (c0 >>> 32);
+                c1 = u0 * mJ + (c0 & 0xFFFFFFFFL) + (c1 >>> 32);
+                c2 = previousA * b1 + (c1 & 0xFFFFFFFFL) + (c2 >>> 32);
+                c3 = u1 * previousM + (c2 & 0xFFFFFFFFL) + (c3 >>> 32);
+                t[j - 2] = (int) c3;
+            }
+            c0 = (t[n] & 0xFFFFFFFFL) + (c0 >>> 32);
+            c1 = (c0 & 0xFFFFFFFFL) + (c1 >>> 32);
+            c2 = aJ * b1 + (c1 & 0xFFFFFFFFL) + (c2 >>> 32);
+            c3 = u1 * mJ + (c2 & 0xFFFFFFFFL) + (c3 >>> 32);
+            t[n - 2] = (int) c3;
+            long carry = (c0 >>> 32) + (c1 >>> 32) + (c2 >>> 32) + (c3 >>> 32);
+            t[n - 1] = (int) carry;
+            t[n] = (int) (carry >>> 32);
+        }
+        if (i < n) {
+            // the last digit of b when n is odd
+            long bI = b[i] & 0xFFFFFFFFL;
+            long c0 = a0 * bI + (t[0] & 0xFFFFFFFFL);
+            long u = ((int) c0 * n2) & 0xFFFFFFFFL;
+            long c1 = u * m0 + (c0 & 0xFFFFFFFFL);
+            for (int j = 1; j < n; j++) {
+                c0 = (a[j] & 0xFFFFFFFFL) * bI + (t[j] & 0xFFFFFFFFL) + (c0 >>> 32);
+                c1 = u * (m[j] & 0xFFFFFFFFL) + (c0 & 0xFFFFFFFFL) + (c1 >>> 32);
+                t[j - 1] = (int) c1;
+            }
+            long carry = (t[n] & 0xFFFFFFFFL) + (c0 >>> 32) + (c1 >>> 32);
+            t[n - 1] = (int) carry;
+            t[n] = (int) (carry >>> 32);
+        }
+    }
+
+    /**
+     * Computes the Montgomery square {@code a * a * 2<sup>-32n</sup> mod m}
+     * of a number of {@code n} digits. The square is computed first,
+     * with the symmetric algorithm of {@link Multiplication}, which needs
+     * about half the products of a multiplication, then it's reduced in the
+     * same work area. Nothing is allocated.
+     *
+     * @param a the number to square, {@code n} digits, less than {@code m}
+     * @param m the digits of the odd modulus
+     * @param n the number of digits of the modulus
+     * @param n2 the digit {@code -m<sup>-1</sup> mod 2<sup>32</sup>}
+     * @param t the work area, {@link #monSquareWorkLength(int)} digits
+     * @param res the {@code n} digits of the square, less than {@code m}; it
+     *        can be {@code a}
+     * @see #monPro(int[], int[], int[], int, int, int[], int[])
+     */
+    static void monSquare(int a[], int m[], int n, int n2, int t[], int res[]) {
+        int squareLen = n << 1;
+        Multiplication.karatsubaSquare(a, 0, n, t, 0, t, squareLen + 1);
+        t[squareLen] = 0;
+        monReduction(t, m, n, n2);
+        finalSubtraction(t, m, n, res);
+    }
+
+    /**
+     * Returns the number of digits of the work area needed by
+     * {@link #monSquare(int[], int[], int, int, int[], int[])}, which is also
+     * enough for {@link #monPro(int[], int[], int[], int, int, int[], int[])}.
+     */
+    static int monSquareWorkLength(int n) {
+        return (n << 1) + 1 + Multiplication.karatsubaSquareWorkLength(n);
+    }
+
+    /**
+     * Performs the Montgomery reduction of {@code res}, which holds
+     * {@code 2n + 1} digits, and leaves {@code res / 2<sup>32n</sup>} in its
+     * {@code n + 1} lower digits. The digits are cleared a
+     * 64-bit word at a time: the two multipliers of a word are found first,
+     * then both rows are added in a single pass over {@code res}, as in the
+     * pencil and paper multiplication.
+     */
+    private static void monReduction(int[] res, int modulus_digits[], int modulusLen, int n2) {
 
         /* res + m*modulus_digits */
-        int[] modulus_digits = modulus.digits;
-        int modulusLen = modulus.numberLength;
         long outerCarry = 0;
-
-        for (int i = 0; i < modulusLen; i++){
+        int i = 0;
+
+        for (; i + 1 < modulusLen; i += 2) {
+            long mod0 = modulus_digits[0] & 0xFFFFFFFFL;
+            long m0 = (res[i] * n2) & 0xFFFFFFFFL;
+            long carry0 = m0 * mod0 + (res[i] & 0xFFFFFFFFL);
+            // the digit i + 1 once m0 * modulus has been added gives m1
+            long m1 = (((int) (m0 * (modulus_digits[1] & 0xFFFFFFFFL)
+                    + (res[i + 1] & 0xFFFFFFFFL) + (carry0 >>> 32))) * n2) & 0xFFFFFFFFL;
+            long carry1 = 0;
+            long previous = mod0;
+            for (int j = 1; j < modulusLen; j++) {
+                long modJ = modulus_digits[j] & 0xFFFFFFFFL;
+                carry0 = m0 * modJ + (res[i + j] & 0xFFFFFFFFL) + (carry0 >>> 32);
+                carry1 = m1 * previous + (carry0 & 0xFFFFFFFFL) + (carry1 >>> 32);
+                res[i + j] = (int) carry1;
+                previous = modJ;
+            }
+            carry1 = m1 * previous + (carry0 >>> 32) + (carry1 >>> 32);
+            outerCarry += (res[i + modulusLen] & 0xFFFFFFFFL) + (carry1 & 0xFFFFFFFFL);
+            res[i + modulusLen] = (int) outerCarry;
+            outerCarry >>>= 32;
+            outerCarry += (res[i + modulusLen + 1] & 0xFFFFFFFFL) + (carry1 >>> 32);
+            res[i + modulusLen + 1] = (int) outerCarry;
+            outerCarry >>>= 32;
+        }
+        if (i < modulusLen) {
             long innnerCarry = 0;
             int m = (int) Multiplication.unsignedMultAddAdd(res[i],n2,0,0);
             for(int j = 0; j < modulusLen; j++){
@@ -842,58 +1637,63 @@ class Division {
     }
 
     /**
-     * Implements the Montgomery Product of two integers represented by
-     * {@code int} arrays. The arrays are supposed in <i>little
-     * endian</i> notation.
-     *
-     * @param a The first factor of the product.
-     * @param b The second factor of the product.
-     * @param modulus The modulus of the operations. Z<sub>modulus</sub>.
-     * @param n2 The digit modulus'[0].
-     * @ar.org.fitc.ref "C. K. Koc - Analyzing and Comparing Montgomery
-     *                  Multiplication Algorithms"
-     * @see #modPowOdd(BigInteger, BigInteger, BigInteger)
-     */
-    static BigInteger monPro(BigInteger a, BigInteger b, BigInteger modulus, int n2) {
-        int modulusLen = modulus.numberLength;
-        int res[] = new int[(modulusLen << 1) + 1];
-        Multiplication.multArraysPAP(a.digits, Math.min(modulusLen, a.numberLength),
-                b.digits, Math.min(modulusLen, b.numberLength), res);
-        monReduction(res,modulus,n2);
-        return finalSubtraction(res, modulus);
-
-    }
-
-    /**
-     * Performs the final reduction of the Montgomery algorithm.
-     * @see monPro(BigInteger, BigInteger, BigInteger, long)
-     * @see monSquare(BigInteger, BigInteger, long)
+     * Performs the final reduction of the Montgomery algorithm: copies to
+     * {@code res} the {@code n} lower digits of {@code t} minus {@code m}
+     * if {@code t >= m}. As {@code t < 2m}, the result is less than
+     * {@code m}.
      */
-    static BigInteger finalSubtraction(int res[], BigInteger modulus){
-
-        // skipping leading zeros
-        int modulusLen = modulus.numberLength;
-        boolean doSub = res[modulusLen]!=0;
-        if(!doSub) {
-            int modulusDigits[] = modulus.digits;
+    private static void finalSubtraction(int t[], int m[], int n, int res[]) {
+        boolean doSub = t[n] != 0;
+        if (!doSub) {
             doSub = true;
-            for(int i = modulusLen - 1; i >= 0; i--) {
-                if(res[i] != modulusDigits[i]) {
-                    doSub = (res[i] != 0) && ((res[i] & 0xFFFFFFFFL) > (modulusDigits[i] & 0xFFFFFFFFL));
+            for (int j = n - 1; j >= 0; j--) {
+                if (t[j] != m[j]) {
+                    doSub = (t[j] & 0xFFFFFFFFL) > (m[j] & 0xFFFFFFFFL);
                     break;
                 }
             }
         }
-
-        BigInteger result = new BigInteger(1, modulusLen+1, res);
-
-        // if (res >= modulusDigits) compute (res - modulusDigits)
         if (doSub) {
-            Elementary.inplaceSubtract(result, modulus);
+            long borrow = 0;
+            for (int j = 0; j < n; j++) {
+                borrow += (t[j] & 0xFFFFFFFFL) - (m[j] & 0xFFFFFFFFL);
+                res[j] = (int) borrow;
+                borrow >>= 32;
+            }
+        } else {
+            System.arraycopy(t, 0, res, 0, n);
+        }
+    }
+
+    /**
+     * Does the same as {@link #finalSubtraction(int[], int[], int, int[])}
+     * without branches which depend on the digits of {@code t}: the
+     * difference is always computed and the borrow chooses between it and
+     * {@code t} with a mask.
+     */
+    private static void constantTimeSubtraction(int t[], int m[], int n, int res[]) {
+        long borrow = 0;
+        for (int j = 0; j < n; j++) {
+            borrow += (t[j] & 0xFFFFFFFFL) - (m[j] & 0xFFFFFFFFL);
+            res[j] = (int) borrow;
+            borrow >>= 32;
+        }
+        // t >= m if the digit n of t absorbs the borrow
+        int mask = (int) ~(((t[n] & 0xFFFFFFFFL) + borrow) >> 63);
+        for (int j = 0; j < n; j++) {
+            res[j] = (res[j] & mask) | (t[j] & ~mask);
         }
+    }
 
-        result.cutOffLeadingZeroes();
-        return result;
+    /**
+     * Returns the lower {@code n} digits of {@code x} in a new array of
+     * {@code n} digits, as used by
+     * {@link #monPro(int[], int[], int[], int, int, int[], int[])}.
+     */
+    static int[] toDigits(BigInteger x, int n) {
+        int digits[] = new int[n];
+        System.arraycopy(x.digits, 0, digits, 0, Math.min(n, x.numberLength));
+        return digits;
     }
 
     /**
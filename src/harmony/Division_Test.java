@@ -0,0 +1,131 @@
+package harmony;
+
+import org.junit.jupiter.api.Test;
+
+import static harmony.Multiplication_Test.jdk;
+import static harmony.Multiplication_Test.randomHarmony;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class Division_Test {
+
+    @Test
+    public void divide_below_burnikel_ziegler() {
+        assertDivide(32 * 300, 32 * 100);
+    }
+
+    @Test
+    public void divide_burnikel_ziegler() {
+        assertDivide(32 * 1000, 32 * 500);
+        assertDivide(32 * 5000, 32 * 400);
+        assertDivide(32 * 3000, 32 * 1999 + 7);
+    }
+
+    @Test
+    public void divide_burnikel_ziegler_negative() {
+        BigInteger x = randomHarmony(32 * 2000).negate();
+        BigInteger y = randomHarmony(32 * 700);
+        assertQuotientAndRemainder(x, y);
+        assertQuotientAndRemainder(x, y.negate());
+        assertQuotientAndRemainder(x.negate(), y.negate());
+    }
+
+    @Test
+    public void divide_burnikel_ziegler_exact() {
+        BigInteger y = BigInteger.ONE.shiftLeft(32 * 600).subtract(BigInteger.ONE);
+        BigInteger q = randomHarmony(32 * 900);
+        assertQuotientAndRemainder(y.multiply(q), y);
+        assertQuotientAndRemainder(y.multiply(q).subtract(BigInteger.ONE), y);
+        assertQuotientAndRemainder(y.multiply(q).add(y).subtract(BigInteger.ONE), y);
+    }
+
+    @Test
+    public void divide_newton() {
+        assertNewtonDivide(randomHarmony(32 * 3000), randomHarmony(32 * 1000));
+        assertNewtonDivide(randomHarmony(32 * 9000), randomHarmony(32 * 6000 + 5));
+        assertNewtonDivide(randomHarmony(32 * 500), randomHarmony(32 * 400));
+        BigInteger y = BigInteger.ONE.shiftLeft(32 * 2000).subtract(BigInteger.ONE);
+        assertNewtonDivide(y.multiply(randomHarmony(32 * 3000)), y);
+    }
+
+    @Test
+    public void reciprocal() {
+        BigInteger b = randomHarmony(32 * 1500);
+        int precision = 32 * 7000 + 3;
+        java.math.BigInteger expected = java.math.BigInteger.ONE
+                .shiftLeft(b.bitLength() + precision).divide(jdk(b));
+        assertEquals(expected, jdk(Division.reciprocal(b, precision)));
+    }
+
+    @Test
+    public void mod_inverse() {
+        for (int bits : new int[] { 20, 64, 100, 1000, 2048, 32 * 150 + 5 }) {
+            BigInteger m = randomHarmony(bits).setBit(bits);
+            for (BigInteger modulus : new BigInteger[] { m.setBit(0), m.clearBit(0) }) {
+                BigInteger a = randomHarmony(bits + 10).setBit(0);
+                while (!a.gcd(modulus).isOne()) {
+                    a = a.add(BigInteger.valueOf(2));
+                }
+                java.math.BigInteger expected = jdk(a).modInverse(jdk(modulus));
+                assertEquals(expected, jdk(a.modInverse(modulus)));
+                assertEquals(expected.negate().mod(jdk(modulus)), jdk(a.negate().modInverse(modulus)));
+            }
+        }
+        assertEquals(BigInteger.ONE, BigInteger.ONE.modInverse(BigInteger.TEN));
+        assertThrows(ArithmeticException.class, () -> BigInteger.valueOf(6).modInverse(BigInteger.valueOf(9)));
+        assertThrows(ArithmeticException.class, () -> BigInteger.valueOf(18).modInverse(BigInteger.valueOf(9)));
+    }
+
+    @Test
+    public void extended_gcd() {
+        for (int bits : new int[] { 40, 64, 1000, 32 * 100 + 3 }) {
+            BigInteger g = randomHarmony(bits / 3).add(BigInteger.ONE);
+            BigInteger x = randomHarmony(bits).add(BigInteger.ONE);
+            BigInteger y = randomHarmony(bits - 20).add(BigInteger.ONE);
+            assertExtendedGcd(x, y);
+            assertExtendedGcd(x.multiply(g), y.multiply(g));
+            assertExtendedGcd(x.negate(), y);
+            assertExtendedGcd(x, y.negate());
+            assertExtendedGcd(x.negate().multiply(g), g.negate());
+            assertExtendedGcd(x, x);
+            assertExtendedGcd(x, BigInteger.ONE);
+        }
+        assertExtendedGcd(BigInteger.valueOf(-12), BigInteger.ZERO);
+        assertExtendedGcd(BigInteger.ZERO, BigInteger.valueOf(-12));
+        BigInteger[] zero = BigInteger.ZERO.extendedGcd(BigInteger.ZERO);
+        assertEquals(BigInteger.ZERO, zero[0]);
+        assertEquals(BigInteger.ZERO, zero[1].multiply(BigInteger.TEN).add(zero[2]));
+    }
+
+    static void assertExtendedGcd(BigInteger a, BigInteger b) {
+        BigInteger[] gcdAndCoefficients = a.extendedGcd(b);
+        java.math.BigInteger g = jdk(a).gcd(jdk(b));
+        assertEquals(g, jdk(gcdAndCoefficients[0]));
+        java.math.BigInteger s = jdk(gcdAndCoefficients[1]);
+        java.math.BigInteger t = jdk(gcdAndCoefficients[2]);
+        assertEquals(g, s.multiply(jdk(a)).add(t.multiply(jdk(b))));
+        if ((a.signum() != 0) && (b.signum() != 0)) {
+            assertTrue(s.abs().multiply(g).compareTo(jdk(b).abs()) <= 0, a + " " + b);
+            assertTrue(t.abs().multiply(g).compareTo(jdk(a).abs()) <= 0, a + " " + b);
+        }
+    }
+
+    static void assertNewtonDivide(BigInteger x, BigInteger y) {
+        java.math.BigInteger[] expected = jdk(x).divideAndRemainder(jdk(y));
+        BigInteger[] actual = Division.newtonDivide(x, y);
+        assertEquals(expected[0], jdk(actual[0]));
+        assertEquals(expected[1], jdk(actual[1]));
+    }
+
+    void assertDivide(int bitLength1, int bitLength2) {
+        assertQuotientAndRemainder(randomHarmony(bitLength1), randomHarmony(bitLength2));
+    }
+
+    static void assertQuotientAndRemainder(BigInteger x, BigInteger y) {
+        java.math.BigInteger[] expected = jdk(x).divideAndRemainder(jdk(y));
+        BigInteger[] actual = x.divideAndRemainder(y);
+        assertEquals(expected[0], jdk(actual[0]));
+        assertEquals(expected[1], jdk(actual[1]));
+        assertEquals(expected[0], jdk(x.divide(y)));
+        assertEquals(expected[1], jdk(x.remainder(y)));
+    }
+}
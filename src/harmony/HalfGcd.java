@@ -0,0 +1,435 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package harmony;
+
+import harmony.internal.nls.Messages;
+
+/**
+ * Static library that provides the greatest common divisor of very large
+ * {@link BigInteger} numbers, and its Bezout's coefficients, by means of the
+ * subquadratic half-gcd algorithm.
+ * <p>
+ * The half-gcd of {@code a} and {@code b} of {@code n} bits is a matrix
+ * {@code M} with non-negative entries and determinant one, the product of
+ * Euclid's steps, such that {@code (a, b) = M (a', b')} with
+ * {@code a', b' > 2<sup>s</sup>} and {@code |a' - b'| <= 2<sup>s</sup>} for
+ * {@code s = n / 2 + 1}. It's computed recursively from the half-gcd of the
+ * most significant halves of the numbers, which is also a correct reduction
+ * of the whole numbers, then from the half-gcd of the most significant part
+ * of the remainders, so the cost is {@code O(M(n) log n)} with
+ * {@code M(n)} the cost of a multiplication. See N. Moller, "On Schonhage's
+ * algorithm and subquadratic integer gcd computation", Mathematics of
+ * Computation 77 (2008).
+ * <p>
+ * Every step subtracts a multiple of one number from the other, and a
+ * reduction computed from the most significant parts is only applied if
+ * the results keep the bounds above, so a wrong estimation can only cost
+ * time.
+ */
+class HalfGcd {
+
+    /** Just to denote that this class can't be instantiated. */
+    private HalfGcd() {}
+
+    /** The length in digits from which {@link BigInteger#gcd(BigInteger)} uses the half-gcd. */
+    static int whenUseHalfGcd = Thresholds.get("halfGcdThreshold", 128); //$NON-NLS-1$
+
+    /**
+     * The length in digits from which {@link BigInteger#modInverse(BigInteger)}
+     * and {@link BigInteger#extendedGcd(BigInteger)} use the half-gcd instead
+     * of the Lehmer's algorithm on digit arrays, which is faster below.
+     */
+    static int whenUseHalfGcdInverse = Thresholds.get("halfGcdInverseThreshold", 1024); //$NON-NLS-1$
+
+    /**
+     * The length in digits below which the half-gcd reduces the numbers by
+     * Euclid's steps instead of recursing.
+     */
+    static int halfGcdBase = Thresholds.get("halfGcdBaseThreshold", 64); //$NON-NLS-1$
+
+    /**
+     * Returns the greatest common divisor of two positive numbers.
+     *
+     * @see BigInteger#gcd(BigInteger)
+     * @param a
+     *            a positive number
+     * @param b
+     *            a positive number
+     * @return {@code gcd(a, b)}
+     */
+    static BigInteger gcd(BigInteger a, BigInteger b) {
+        // PRE: (a > 0) and (b > 0)
+        while (Math.min(a.numberLength, b.numberLength) >= halfGcdBase) {
+            Reduction r = halfGcd(a, b);
+            a = r.a;
+            b = r.b;
+            // a division step, which is all the progress when a and b have different lengths
+            if (a.compareTo(b) >= 0) {
+                a = a.mod(b);
+            } else {
+                b = b.mod(a);
+            }
+            if (a.sign == 0) {
+                return b;
+            }
+            if (b.sign == 0) {
+                return a;
+            }
+        }
+        return Division.gcdBinary(a.copy(), b.copy());
+    }
+
+    /**
+     * Returns the greatest common divisor {@code g} of two positive numbers
+     * and the Bezout's coefficients {@code x} and {@code y} such that
+     * {@code g = x * a + y * b}. The coefficients are the ones of the
+     * Euclid's algorithm, bounded by {@code max(a, b) / g}.
+     *
+     * @param a
+     *            a positive number
+     * @param b
+     *            a positive number
+     * @return the array {@code g, x, y}
+     */
+    static BigInteger[] extendedGcd(BigInteger a, BigInteger b) {
+        // PRE: (a > 0) and (b > 0)
+        Reduction total = new Reduction(a, b);
+        while ((total.a.sign != 0) && (total.b.sign != 0)
+                && (Math.min(total.a.numberLength, total.b.numberLength) >= halfGcdBase)) {
+            total.compose(halfGcd(total.a, total.b));
+            total.divisionStep();
+        }
+        // the small remainders are finished apart, with a matrix of small entries
+        Reduction tail = new Reduction(total.a, total.b);
+        while ((tail.a.sign != 0) && (tail.b.sign != 0)) {
+            if (!tail.lehmerSteps(0)) {
+                tail.divisionStep();
+            }
+        }
+        total.compose(tail);
+        // (a, b) = M (g, 0) or M (0, g), and M<sup>-1</sup> = [m11, -m01; -m10, m00]
+        if (total.b.sign == 0) {
+            return new BigInteger[] { total.a, total.m11, total.m01.negate() };
+        }
+        return new BigInteger[] { total.b, total.m10.negate(), total.m00 };
+    }
+
+    /**
+     * Returns {@code a<sup>-1</sup> mod m} from the Bezout's coefficients of
+     * {@code a} and {@code m}.
+     *
+     * @see BigInteger#modInverse(BigInteger)
+     * @param a
+     *            a number in the interval {@code [0, m)}
+     * @param m
+     *            a modulus greater than one
+     * @return {@code a<sup>-1</sup> mod m}
+     * @throws ArithmeticException
+     *             if {@code a} is not relatively prime to {@code m}.
+     */
+    static BigInteger modInverse(BigInteger a, BigInteger m) {
+        // PRE: (0 <= a < m) and (m > 1)
+        if (a.sign == 0) {
+            // math.19=BigInteger not invertible.
+            throw new ArithmeticException(Messages.getString("math.19")); //$NON-NLS-1$
+        }
+        BigInteger gcdAndCoefficients[] = extendedGcd(a, m);
+        if (!gcdAndCoefficients[0].isOne()) {
+            // math.19=BigInteger not invertible.
+            throw new ArithmeticException(Messages.getString("math.19")); //$NON-NLS-1$
+        }
+        return gcdAndCoefficients[1].mod(m);
+    }
+
+    /**
+     * Returns the half-gcd reduction of two positive numbers.
+     *
+     * @param a
+     *            a positive number
+     * @param b
+     *            a positive number
+     * @return the reduced numbers with their matrix
+     */
+    static Reduction halfGcd(BigInteger a, BigInteger b) {
+        Reduction r = new Reduction(a, b);
+        int n = Math.max(a.bitLength(), b.bitLength());
+        int s = (n >> 1) + 1;
+        if (!exceeds(a, s) || !exceeds(b, s)) {
+            return r;
+        }
+        if (n >= halfGcdBase << 5) {
+            // the upper half reduces the numbers to about 3n/4 bits
+            r.reduceUpperPart(n >> 1, s);
+            r.reduceStep(s);
+            // then the upper part of about n/2 bits of the remainders reduces them to n/2 bits
+            int length = Math.max(r.a.bitLength(), r.b.bitLength());
+            int p = 2 * s - length + 1;
+            if ((p > 0) && (length - p <= (n >> 1) + 32)) {
+                r.reduceUpperPart(p, s);
+            }
+        }
+        r.reduce(s);
+        return r;
+    }
+
+    /**
+     * @return {@code true} if {@code x > 2<sup>s</sup>}, so a badly
+     *         estimated negative number is never accepted
+     */
+    private static boolean exceeds(BigInteger x, int s) {
+        if (x.sign <= 0) {
+            return false;
+        }
+        int bitLength = x.bitLength();
+        return (bitLength > s + 1) || ((bitLength == s + 1) && (x.getLowestSetBit() < s));
+    }
+
+    /**
+     * Two numbers {@code a} and {@code b} obtained from the initial ones by
+     * Euclid's steps, and the matrix {@code M} of these steps, such that the
+     * initial numbers are {@code M (a, b)}. The steps only subtract, so the
+     * determinant of {@code M} is one.
+     */
+    static final class Reduction {
+
+        BigInteger a;
+
+        BigInteger b;
+
+        BigInteger m00 = BigInteger.ONE;
+
+        BigInteger m01 = BigInteger.ZERO;
+
+        BigInteger m10 = BigInteger.ZERO;
+
+        BigInteger m11 = BigInteger.ONE;
+
+        /** {@code true} while {@code M} is the identity. */
+        private boolean identity = true;
+
+        Reduction(BigInteger a, BigInteger b) {
+            this.a = a;
+            this.b = b;
+        }
+
+        /** Performs {@code a = a - q * b}, so {@code M = M [1, q; 0, 1]}. */
+        private void subtractFromA(BigInteger q) {
+            a = a.subtract(q.multiply(b));
+            m01 = m01.add(q.multiply(m00));
+            m11 = m11.add(q.multiply(m10));
+            identity = false;
+        }
+
+        /** Performs {@code b = b - q * a}, so {@code M = M [1, 0; q, 1]}. */
+        private void subtractFromB(BigInteger q) {
+            b = b.subtract(q.multiply(a));
+            m00 = m00.add(q.multiply(m01));
+            m10 = m10.add(q.multiply(m11));
+            identity = false;
+        }
+
+        /** Replaces the larger number by its remainder by the other one, which is not zero. */
+        void divisionStep() {
+            if (a.compareTo(b) >= 0) {
+                subtractFromA(a.divide(b));
+            } else {
+                subtractFromB(b.divide(a));
+            }
+        }
+
+        /**
+         * Performs Euclid's steps while {@code a, b > 2<sup>s</sup>} and
+         * {@code |a - b| > 2<sup>s</sup>}, keeping both numbers above
+         * {@code 2<sup>s</sup>}. Most of them are grouped by
+         * {@link #lehmerSteps(int)}.
+         */
+        void reduce(int s) {
+            while (true) {
+                // far from the end, a group of steps is likely to keep the bounds
+                if ((Math.min(a.bitLength(), b.bitLength()) > s + 48) && lehmerSteps(s)) {
+                    continue;
+                }
+                if (!reduceStep(s)) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Performs one of the steps of {@link #reduce(int)}.
+         *
+         * @return {@code false} if the numbers are already reduced
+         */
+        boolean reduceStep(int s) {
+            if (!exceeds(a, s) || !exceeds(b, s)) {
+                return false;
+            }
+            BigInteger limit = BigInteger.getPowerOfTwo(s).add(BigInteger.ONE);
+            int cmp = a.compareTo(b);
+            if (cmp > 0) {
+                BigInteger q = a.subtract(limit).divide(b);
+                if (q.sign != 0) {
+                    subtractFromA(q);
+                    return true;
+                }
+            } else if (cmp < 0) {
+                BigInteger q = b.subtract(limit).divide(a);
+                if (q.sign != 0) {
+                    subtractFromB(q);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Performs the Euclid's steps whose quotients can be computed from
+         * the leading 31 bits of the numbers, as in the algorithm L of D.
+         * Knuth, The Art of Computer Programming, vol. 2, section 4.5.2, by
+         * multiplications by one digit. The steps are kept if the remainders
+         * stay above {@code 2<sup>s</sup>}, so they are the same as the ones
+         * of {@link #reduceStep(int)}.
+         *
+         * @return {@code false} if no step was done
+         * @see Division#modInverseLehmer(BigInteger, BigInteger)
+         */
+        boolean lehmerSteps(int s) {
+            boolean aLarger = a.compareTo(b) >= 0;
+            BigInteger u = aLarger ? a : b;
+            BigInteger v = aLarger ? b : a;
+            int shift = u.bitLength() - 31;
+            if (shift <= 0) {
+                return false;
+            }
+            long uHat = u.shiftRight(shift).longValue();
+            long vHat = v.shiftRight(shift).longValue();
+            long aa = 1;
+            long bb = 0;
+            long cc = 0;
+            long dd = 1;
+            int steps = 0;
+            while ((vHat + cc != 0) && (vHat + dd != 0)) {
+                long q = (uHat + aa) / (vHat + cc);
+                if (q != (uHat + bb) / (vHat + dd)) {
+                    break;
+                }
+                long t = aa - q * cc;
+                aa = cc;
+                cc = t;
+                t = bb - q * dd;
+                bb = dd;
+                dd = t;
+                t = uHat - q * vHat;
+                uHat = vHat;
+                vHat = t;
+                steps++;
+            }
+            if (steps == 0) {
+                return false;
+            }
+            // (u', v') = [aa, bb; cc, dd] (u, v), whose determinant is (-1)^steps
+            BigInteger newU = u.multiply(BigInteger.valueOf(aa)).add(v.multiply(BigInteger.valueOf(bb)));
+            BigInteger newV = u.multiply(BigInteger.valueOf(cc)).add(v.multiply(BigInteger.valueOf(dd)));
+            boolean even = (steps & 1) == 0;
+            // without swaps, the remainder v' is in the place of u after an odd number of steps
+            BigInteger first = even ? newU : newV;
+            BigInteger second = even ? newV : newU;
+            if (!exceeds(first, s) || !exceeds(second, s)) {
+                return false;
+            }
+            // the matrix S with (u, v) = S (first, second)
+            long s00 = even ? dd : bb;
+            long s01 = even ? -bb : -dd;
+            long s10 = even ? -cc : -aa;
+            long s11 = even ? aa : cc;
+            Reduction group = new Reduction(first, second);
+            group.identity = false;
+            if (aLarger) {
+                group.m00 = BigInteger.valueOf(s00);
+                group.m01 = BigInteger.valueOf(s01);
+                group.m10 = BigInteger.valueOf(s10);
+                group.m11 = BigInteger.valueOf(s11);
+            } else {
+                group.a = second;
+                group.b = first;
+                group.m00 = BigInteger.valueOf(s11);
+                group.m01 = BigInteger.valueOf(s10);
+                group.m10 = BigInteger.valueOf(s01);
+                group.m11 = BigInteger.valueOf(s00);
+            }
+            compose(group);
+            return true;
+        }
+
+        /**
+         * Applies the half-gcd reduction of {@code a} and {@code b} shifted
+         * right by {@code p} bits, if the reduced numbers are still greater
+         * than {@code 2<sup>s</sup>}.
+         */
+        void reduceUpperPart(int p, int s) {
+            Reduction upper = halfGcd(a.shiftRight(p), b.shiftRight(p));
+            if (upper.identity) {
+                return;
+            }
+            // M<sup>-1</sup> (a, b) = 2<sup>p</sup> (a', b') + M<sup>-1</sup> (aLow, bLow)
+            BigInteger aLow = lowBits(a, p);
+            BigInteger bLow = lowBits(b, p);
+            BigInteger newA = upper.a.shiftLeft(p)
+                    .add(upper.m11.multiply(aLow)).subtract(upper.m01.multiply(bLow));
+            BigInteger newB = upper.b.shiftLeft(p)
+                    .add(upper.m00.multiply(bLow)).subtract(upper.m10.multiply(aLow));
+            if (exceeds(newA, s) && exceeds(newB, s)) {
+                upper.a = newA;
+                upper.b = newB;
+                compose(upper);
+            }
+        }
+
+        /** Continues with the numbers of {@code r}, so {@code M = M M<sub>r</sub>}. */
+        void compose(Reduction r) {
+            a = r.a;
+            b = r.b;
+            if (r.identity) {
+                return;
+            }
+            if (identity) {
+                m00 = r.m00;
+                m01 = r.m01;
+                m10 = r.m10;
+                m11 = r.m11;
+            } else {
+                BigInteger n00 = m00.multiply(r.m00).add(m01.multiply(r.m10));
+                BigInteger n01 = m00.multiply(r.m01).add(m01.multiply(r.m11));
+                BigInteger n10 = m10.multiply(r.m00).add(m11.multiply(r.m10));
+                BigInteger n11 = m10.multiply(r.m01).add(m11.multiply(r.m11));
+                m00 = n00;
+                m01 = n01;
+                m10 = n10;
+                m11 = n11;
+            }
+            identity = false;
+        }
+
+        /** @return {@code x mod 2<sup>p</sup>} */
+        private static BigInteger lowBits(BigInteger x, int p) {
+            BigInteger low = x.copy();
+            Division.inplaceModPow2(low, p);
+            return low;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package harmony;
+
+import org.junit.jupiter.api.Test;
+
+import static harmony.Multiplication_Test.jdk;
+import static harmony.Multiplication_Test.randomHarmony;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HalfGcd_Test {
+
+    @Test
+    public void gcd() {
+        for (int bits : new int[] { 32 * 300, 32 * 2000 + 17 }) {
+            BigInteger g = randomHarmony(bits / 3).setBit(0);
+            assertGcd(randomHarmony(bits), randomHarmony(bits));
+            assertGcd(randomHarmony(bits).multiply(g), randomHarmony(bits - 100).multiply(g));
+            assertGcd(randomHarmony(bits), randomHarmony(bits / 5));
+        }
+    }
+
+    @Test
+    public void gcd_small_base() {
+        int base = HalfGcd.halfGcdBase;
+        HalfGcd.halfGcdBase = 2;
+        try {
+            for (int bits : new int[] { 100, 1000, 5000 }) {
+                BigInteger g = randomHarmony(bits / 4).add(BigInteger.ONE);
+                BigInteger x = randomHarmony(bits).add(BigInteger.ONE);
+                assertGcd(x, randomHarmony(bits).add(BigInteger.ONE));
+                assertGcd(x.multiply(g), randomHarmony(bits).add(BigInteger.ONE).multiply(g));
+                assertGcd(x, x);
+                assertGcd(x.add(g), x);
+            }
+        } finally {
+            HalfGcd.halfGcdBase = base;
+        }
+    }
+
+    @Test
+    public void extended_gcd() {
+        int threshold = HalfGcd.whenUseHalfGcdInverse;
+        HalfGcd.whenUseHalfGcdInverse = 100;
+        try {
+            BigInteger x = randomHarmony(32 * 400);
+            BigInteger y = randomHarmony(32 * 300).negate();
+            Division_Test.assertExtendedGcd(x, y);
+            Division_Test.assertExtendedGcd(y, x.multiply(y));
+        } finally {
+            HalfGcd.whenUseHalfGcdInverse = threshold;
+        }
+    }
+
+    @Test
+    public void mod_inverse() {
+        BigInteger m = randomHarmony(32 * 2100).setBit(32 * 2100);
+        BigInteger a = randomHarmony(32 * 2000).setBit(0);
+        while (!a.gcd(m).isOne()) {
+            a = a.add(BigInteger.valueOf(2));
+        }
+        assertEquals(jdk(a).modInverse(jdk(m)), jdk(HalfGcd.modInverse(a, m)));
+        BigInteger b = a;
+        assertThrows(ArithmeticException.class, () -> HalfGcd.modInverse(b.shiftLeft(1), b.shiftLeft(2)));
+        assertThrows(ArithmeticException.class, () -> HalfGcd.modInverse(BigInteger.ZERO, b));
+    }
+
+    static void assertGcd(BigInteger a, BigInteger b) {
+        java.math.BigInteger expected = jdk(a).gcd(jdk(b));
+        assertEquals(expected, jdk(HalfGcd.gcd(a, b)));
+        assertEquals(expected, jdk(a.gcd(b)));
+        BigInteger[] gcdAndCoefficients = HalfGcd.extendedGcd(a, b);
+        assertEquals(expected, jdk(gcdAndCoefficients[0]));
+        assertEquals(expected, jdk(gcdAndCoefficients[1].multiply(a).add(gcdAndCoefficients[2].multiply(b))));
+        assertTrue(jdk(gcdAndCoefficients[1].abs().multiply(gcdAndCoefficients[0])).compareTo(jdk(b)) <= 0);
+        assertTrue(jdk(gcdAndCoefficients[2].abs().multiply(gcdAndCoefficients[0])).compareTo(jdk(a)) <= 0);
+    }
+}
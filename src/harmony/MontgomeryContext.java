@@ -0,0 +1,412 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package harmony;
+
+import harmony.internal.nls.Messages;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Holds the constants of the Montgomery's arithmetic modulo a fixed odd
+ * modulus {@code m}, so that they are computed once for many modular
+ * exponentiations or products. With {@code k} the number of digits of the
+ * modulus and {@code R = 2<sup>32k</sup>}, the Montgomery form of {@code x}
+ * is {@code x * R mod m}.
+ * <p>
+ * Instances are immutable and can be shared by several threads.
+ *
+ * @see BigInteger#modPow(BigInteger, BigInteger)
+ */
+public final class MontgomeryContext {
+
+    /** The modulus. */
+    final BigInteger modulus;
+
+    /** The digit {@code -m<sup>-1</sup> mod 2<sup>32</sup>}. */
+    final int n2;
+
+    /** {@code R mod m}, the Montgomery form of one. */
+    final BigInteger one;
+
+    /** {@code R<sup>2</sup> mod m}, used to convert to the Montgomery form. */
+    private final BigInteger rSquare;
+
+    /**
+     * Creates the context of the given modulus.
+     *
+     * @param modulus
+     *            an odd positive modulus.
+     * @throws NullPointerException
+     *             if {@code modulus == null}.
+     * @throws ArithmeticException
+     *             if {@code modulus <= 0} or if {@code modulus} is even.
+     */
+    public MontgomeryContext(BigInteger modulus) {
+        if (modulus.sign <= 0) {
+            // math.18=BigInteger: modulus not positive
+            throw new ArithmeticException(Messages.getString("math.18")); //$NON-NLS-1$
+        }
+        if (!modulus.testBit(0)) {
+            // math.1D=BigInteger: modulus not odd
+            throw new ArithmeticException(Messages.getString("math.1D")); //$NON-NLS-1$
+        }
+        this.modulus = modulus;
+        n2 = Division.calcN(modulus);
+        one = BigInteger.getPowerOfTwo(modulus.numberLength << 5).mod(modulus);
+        rSquare = one.multiply(one).mod(modulus);
+    }
+
+    /**
+     * Returns the modulus of this context.
+     *
+     * @return the modulus.
+     */
+    public BigInteger getModulus() {
+        return modulus;
+    }
+
+    /**
+     * Returns the Montgomery form of {@code x}, that is {@code x * R mod m}.
+     *
+     * @param x
+     *            any number.
+     * @return the Montgomery form of {@code x}.
+     * @throws NullPointerException
+     *             if {@code x == null}.
+     */
+    public BigInteger toMontgomery(BigInteger x) {
+        return Division.monPro(reduce(x), rSquare, modulus, n2);
+    }
+
+    /**
+     * Returns the number whose Montgomery form is {@code x}, that is
+     * {@code x * R<sup>-1</sup> mod m}.
+     *
+     * @param x
+     *            a number in Montgomery form.
+     * @return the number in the interval {@code [0, m)} represented by
+     *         {@code x}.
+     * @throws NullPointerException
+     *             if {@code x == null}.
+     */
+    public BigInteger fromMontgomery(BigInteger x) {
+        return Division.monPro(reduce(x), BigInteger.ONE, modulus, n2);
+    }
+
+    /**
+     * Returns the Montgomery product {@code a * b * R<sup>-1</sup> mod m},
+     * which is the Montgomery form of the product of the numbers whose
+     * Montgomery forms are {@code a} and {@code b}. Operands out of the
+     * interval {@code [0, m)} are reduced first.
+     *
+     * @param a
+     *            a number in Montgomery form.
+     * @param b
+     *            a number in Montgomery form.
+     * @return the Montgomery form of the product.
+     * @throws NullPointerException
+     *             if {@code a == null} or {@code b == null}.
+     */
+    public BigInteger modMul(BigInteger a, BigInteger b) {
+        return Division.monPro(reduce(a), reduce(b), modulus, n2);
+    }
+
+    /**
+     * Returns {@code base<sup>exponent</sup> mod m}, the same as
+     * {@code base.modPow(exponent, m)}. The numbers are in the usual form,
+     * not in Montgomery form.
+     *
+     * @param base
+     *            the base.
+     * @param exponent
+     *            the exponent.
+     * @return {@code base<sup>exponent</sup> mod m}.
+     * @throws NullPointerException
+     *             if {@code base == null} or {@code exponent == null}.
+     * @throws ArithmeticException
+     *             if {@code exponent < 0} and {@code base} is not relatively
+     *             prime to {@code m}.
+     */
+    public BigInteger modPow(BigInteger base, BigInteger exponent) {
+        if (modulus.isOne() | (exponent.sign > 0 & base.sign == 0)) {
+            return BigInteger.ZERO;
+        }
+        if (exponent.sign == 0) {
+            return BigInteger.ONE;
+        }
+        if (exponent.sign < 0) {
+            base = base.modInverse(modulus);
+            exponent = exponent.negate();
+        }
+        return pow(base, exponent);
+    }
+
+    /**
+     * Returns {@code base<sup>exponent</sup> mod m} like
+     * {@link #modPow(BigInteger, BigInteger)}, in a time which doesn't
+     * depend on the bits of the exponent or of the base, for private keys.
+     * Only the lengths of the exponent and of the modulus in digits can be
+     * told from the time. It's slower than {@code modPow}. A negative
+     * exponent is allowed, but the inverse of the base is not computed in
+     * constant time.
+     *
+     * @param base
+     *            the base.
+     * @param exponent
+     *            the secret exponent.
+     * @return {@code base<sup>exponent</sup> mod m}.
+     * @throws NullPointerException
+     *             if {@code base == null} or {@code exponent == null}.
+     * @throws ArithmeticException
+     *             if {@code exponent < 0} and {@code base} is not relatively
+     *             prime to {@code m}.
+     * @see BigInteger#modPowSecret(BigInteger, BigInteger)
+     */
+    public BigInteger modPowSecret(BigInteger base, BigInteger exponent) {
+        if (exponent.sign < 0) {
+            base = base.modInverse(modulus);
+            exponent = exponent.negate();
+        }
+        return Division.fixedWindow(one, toMontgomery(base), exponent, modulus, n2);
+    }
+
+    /**
+     * Returns the product of {@code bases[i]<sup>exponents[i]</sup>} modulo
+     * {@code m}, as needed to verify signatures. The powers are computed at
+     * the same time and share their squares, so it costs about as much as
+     * the longest power alone plus a multiplication per window of the other
+     * exponents.
+     *
+     * @param bases
+     *            the bases.
+     * @param exponents
+     *            the exponents, one per base.
+     * @return the product of the powers modulo {@code m}.
+     * @throws NullPointerException
+     *             if an array or one of their elements is {@code null}.
+     * @throws IllegalArgumentException
+     *             if the arrays have different lengths.
+     * @throws ArithmeticException
+     *             if an exponent is negative and its base is not relatively
+     *             prime to {@code m}.
+     * @see BigInteger#multiModPow(BigInteger[], BigInteger[], BigInteger)
+     */
+    public BigInteger multiModPow(BigInteger bases[], BigInteger exponents[]) {
+        if (bases.length != exponents.length) {
+            // math.1E=The number of bases and exponents is different
+            throw new IllegalArgumentException(Messages.getString("math.1E")); //$NON-NLS-1$
+        }
+        BigInteger a2s[] = new BigInteger[bases.length];
+        BigInteger positiveExponents[] = new BigInteger[bases.length];
+        for (int i = 0; i < bases.length; i++) {
+            BigInteger base = bases[i];
+            BigInteger exponent = exponents[i];
+            if (exponent.sign < 0) {
+                base = base.modInverse(modulus);
+                exponent = exponent.negate();
+            }
+            a2s[i] = toMontgomery(base);
+            positiveExponents[i] = exponent;
+        }
+        if (modulus.isOne()) {
+            return BigInteger.ZERO;
+        }
+        return fromMontgomery(Division.multiSlidingWindow(one, a2s, positiveExponents,
+                modulus, n2));
+    }
+
+    /**
+     * Returns the powers {@code bases[i]<sup>exponents[i]</sup> mod m}, each
+     * one computed by {@link #modPow(BigInteger, BigInteger)} with the
+     * constants of this context. Only the setup of the context is shared:
+     * every power still converts its base to the Montgomery form, builds its
+     * table of odd powers and converts its result back, so the batch costs
+     * as much as the separate calls to {@code modPow}. It's a convenience,
+     * and the same powers can be computed concurrently with
+     * {@link #parallelModPow(BigInteger[], BigInteger[])}.
+     *
+     * @param bases
+     *            the bases.
+     * @param exponents
+     *            the exponents, one per base.
+     * @return the array of the powers, in the order of the bases.
+     * @throws NullPointerException
+     *             if an array or one of their elements is {@code null}.
+     * @throws IllegalArgumentException
+     *             if the arrays have different lengths.
+     * @throws ArithmeticException
+     *             if an exponent is negative and its base is not relatively
+     *             prime to {@code m}.
+     */
+    public BigInteger[] modPow(BigInteger bases[], BigInteger exponents[]) {
+        BigInteger results[] = newResults(bases, exponents);
+        for (int i = 0; i < bases.length; i++) {
+            results[i] = modPow(bases[i], exponents[i]);
+        }
+        return results;
+    }
+
+    /**
+     * Returns the same powers as {@link #modPow(BigInteger[], BigInteger[])},
+     * computed concurrently in the common {@code ForkJoinPool}, using more
+     * CPU time to reduce the elapsed time.
+     *
+     * @param bases
+     *            the bases.
+     * @param exponents
+     *            the exponents, one per base.
+     * @return the array of the powers, in the order of the bases.
+     * @throws NullPointerException
+     *             if an array or one of their elements is {@code null}.
+     * @throws IllegalArgumentException
+     *             if the arrays have different lengths.
+     * @throws ArithmeticException
+     *             if an exponent is negative and its base is not relatively
+     *             prime to {@code m}.
+     */
+    public BigInteger[] parallelModPow(BigInteger bases[], BigInteger exponents[]) {
+        BigInteger results[] = newResults(bases, exponents);
+        new BatchModPow(this, bases, exponents, results, 0, bases.length).invoke();
+        return results;
+    }
+
+    /**
+     * Returns the inverses {@code values[i]<sup>-1</sup> mod m} with the
+     * Montgomery's trick: the product of all the values is inverted once,
+     * then every inverse is obtained from the partial products, for a total
+     * of one inversion and {@code 3(n - 1)} Montgomery products. The values
+     * are not converted to the Montgomery form, as the powers of {@code R}
+     * of the partial products cancel out.
+     *
+     * @param values
+     *            the numbers to invert.
+     * @return the array of the inverses, in the order of the values.
+     * @throws NullPointerException
+     *             if {@code values} or one of its elements is {@code null}.
+     * @throws ArithmeticException
+     *             if a value is not relatively prime to {@code m}.
+     * @see BigInteger#batchModInverse(BigInteger[], BigInteger)
+     */
+    public BigInteger[] modInverse(BigInteger values[]) {
+        int n = values.length;
+        BigInteger results[] = new BigInteger[n];
+        if (n == 0) {
+            return results;
+        }
+        // products[i] = values[0] * ... * values[i] * R^-i
+        BigInteger products[] = new BigInteger[n];
+        for (int i = 0; i < n; i++) {
+            results[i] = reduce(values[i]);
+            products[i] = (i == 0) ? results[0]
+                    : Division.monPro(products[i - 1], results[i], modulus, n2);
+        }
+        // inverse = (values[0] * ... * values[i])^-1 * R^i
+        BigInteger inverse = products[n - 1].modInverse(modulus);
+        for (int i = n - 1; i > 0; i--) {
+            BigInteger value = results[i];
+            results[i] = Division.monPro(inverse, products[i - 1], modulus, n2);
+            inverse = Division.monPro(inverse, value, modulus, n2);
+        }
+        results[0] = inverse;
+        return results;
+    }
+
+    private static BigInteger[] newResults(BigInteger bases[], BigInteger exponents[]) {
+        if (bases.length != exponents.length) {
+            // math.1E=The number of bases and exponents is different
+            throw new IllegalArgumentException(Messages.getString("math.1E")); //$NON-NLS-1$
+        }
+        return new BigInteger[bases.length];
+    }
+
+    /**
+     * The powers of a range of bases, split in halves computed in the common
+     * {@code ForkJoinPool} until there is a single power.
+     */
+    private static final class BatchModPow extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final MontgomeryContext context;
+
+        private final BigInteger bases[];
+
+        private final BigInteger exponents[];
+
+        private final BigInteger results[];
+
+        private final int from;
+
+        private final int to;
+
+        BatchModPow(MontgomeryContext context, BigInteger bases[], BigInteger exponents[],
+                BigInteger results[], int from, int to) {
+            this.context = context;
+            this.bases = bases;
+            this.exponents = exponents;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                results[from] = context.modPow(bases[from], exponents[from]);
+            } else if (to > from) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new BatchModPow(context, bases, exponents, results, from, middle),
+                        new BatchModPow(context, bases, exponents, results, middle, to));
+            }
+        }
+    }
+
+    /**
+     * Returns {@code base<sup>exponent</sup> mod m} for a positive exponent.
+     *
+     * @see #modPow(BigInteger, BigInteger)
+     */
+    BigInteger pow(BigInteger base, BigInteger exponent) {
+        // PRE: (exponent > 0)
+        return Division.monPro(montgomeryPow(base, exponent), BigInteger.ONE, modulus, n2);
+    }
+
+    /**
+     * Returns the Montgomery form of {@code base<sup>exponent</sup> mod m}
+     * for a positive exponent, for the callers which keep working in
+     * Montgomery form.
+     *
+     * @see #pow(BigInteger, BigInteger)
+     */
+    BigInteger montgomeryPow(BigInteger base, BigInteger exponent) {
+        // PRE: (exponent > 0)
+        BigInteger a2 = toMontgomery(base);
+        if (modulus.numberLength == 1) {
+            return Division.squareAndMultiply(one, a2, exponent, modulus, n2);
+        }
+        return Division.slidingWindow(one, a2, exponent, modulus, n2);
+    }
+
+    /** @return {@code x mod m}, without dividing if {@code x} is already reduced */
+    private BigInteger reduce(BigInteger x) {
+        if ((x.sign < 0) || (x.compareTo(modulus) >= 0)) {
+            return x.mod(modulus);
+        }
+        return x;
+    }
+}
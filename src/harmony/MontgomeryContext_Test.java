@@ -0,0 +1,153 @@
+package harmony;
+
+import org.junit.jupiter.api.Test;
+
+import static harmony.Multiplication_Test.jdk;
+import static harmony.Multiplication_Test.randomHarmony;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MontgomeryContext_Test {
+
+    @Test
+    public void mod_pow() {
+        for (int bits : new int[] { 17, 32, 64, 521, 2048 }) {
+            BigInteger m = randomHarmony(bits).setBit(0);
+            MontgomeryContext context = new MontgomeryContext(m);
+            for (int i = 0; i < 5; i++) {
+                BigInteger base = randomHarmony(bits + 40);
+                BigInteger exponent = randomHarmony(300);
+                assertEquals(jdk(base).modPow(jdk(exponent), jdk(m)),
+                        jdk(context.modPow(base, exponent)));
+                assertEquals(jdk(base.negate()).modPow(jdk(exponent), jdk(m)),
+                        jdk(context.modPow(base.negate(), exponent)));
+            }
+        }
+    }
+
+    @Test
+    public void mod_pow_every_window_width() {
+        BigInteger m = randomHarmony(200).setBit(0);
+        MontgomeryContext context = new MontgomeryContext(m);
+        BigInteger base = randomHarmony(190);
+        for (int bits : new int[] { 1, 7, 8, 25, 26, 81, 82, 241, 242, 673, 674, 1793, 1794, 3000 }) {
+            BigInteger exponent = randomHarmony(bits).setBit(bits - 1);
+            assertEquals(jdk(base).modPow(jdk(exponent), jdk(m)),
+                    jdk(context.modPow(base, exponent)));
+        }
+    }
+
+    @Test
+    public void mod_pow_secret() {
+        for (int bits : new int[] { 31, 64, 521, 2048 }) {
+            BigInteger m = randomHarmony(bits).setBit(0);
+            MontgomeryContext context = new MontgomeryContext(m);
+            for (int exponentBits : new int[] { 1, 5, bits, bits + 100 }) {
+                BigInteger base = randomHarmony(bits + 7);
+                BigInteger exponent = randomHarmony(exponentBits);
+                java.math.BigInteger expected = jdk(base).modPow(jdk(exponent), jdk(m));
+                assertEquals(expected, jdk(context.modPowSecret(base, exponent)));
+                assertEquals(expected, jdk(base.modPowSecret(exponent, m)));
+            }
+        }
+        BigInteger m = BigInteger.valueOf(101);
+        assertEquals(BigInteger.ONE, BigInteger.TEN.modPowSecret(BigInteger.ZERO, m));
+        assertEquals(BigInteger.ZERO, BigInteger.ZERO.modPowSecret(BigInteger.TEN, m));
+        assertEquals(BigInteger.valueOf(91), BigInteger.TEN.modPowSecret(BigInteger.ONE.negate(), m));
+        assertThrows(ArithmeticException.class, () -> BigInteger.TEN.modPowSecret(BigInteger.TEN, BigInteger.TEN));
+    }
+
+    @Test
+    public void multi_mod_pow() {
+        for (BigInteger m : new BigInteger[] { randomHarmony(1024).setBit(0), randomHarmony(700).clearBit(0) }) {
+            BigInteger bases[] = { randomHarmony(1000), randomHarmony(1100).negate(), randomHarmony(30) };
+            BigInteger exponents[] = { randomHarmony(256), randomHarmony(160), randomHarmony(1200) };
+            java.math.BigInteger expected = java.math.BigInteger.ONE;
+            for (int i = 0; i < bases.length; i++) {
+                expected = expected.multiply(jdk(bases[i]).modPow(jdk(exponents[i]), jdk(m))).mod(jdk(m));
+            }
+            assertEquals(expected, jdk(BigInteger.multiModPow(bases, exponents, m)));
+        }
+        BigInteger m = BigInteger.valueOf(101);
+        assertEquals(BigInteger.ONE, BigInteger.multiModPow(new BigInteger[0], new BigInteger[0], m));
+        assertEquals(BigInteger.valueOf(100), BigInteger.multiModPow(new BigInteger[] { BigInteger.TEN, BigInteger.TEN },
+                new BigInteger[] { BigInteger.ONE.negate(), BigInteger.valueOf(3) }, m));
+        assertThrows(IllegalArgumentException.class, () -> BigInteger.multiModPow(new BigInteger[] { BigInteger.TEN },
+                new BigInteger[0], m));
+    }
+
+    @Test
+    public void batch_mod_pow() {
+        BigInteger m = randomHarmony(512).setBit(0);
+        MontgomeryContext context = new MontgomeryContext(m);
+        BigInteger bases[] = new BigInteger[37];
+        BigInteger exponents[] = new BigInteger[bases.length];
+        for (int i = 0; i < bases.length; i++) {
+            bases[i] = randomHarmony(500 + i);
+            exponents[i] = randomHarmony(3 * i + 1);
+        }
+        BigInteger sequential[] = context.modPow(bases, exponents);
+        BigInteger parallel[] = context.parallelModPow(bases, exponents);
+        for (int i = 0; i < bases.length; i++) {
+            java.math.BigInteger expected = jdk(bases[i]).modPow(jdk(exponents[i]), jdk(m));
+            assertEquals(expected, jdk(sequential[i]));
+            assertEquals(expected, jdk(parallel[i]));
+        }
+        assertEquals(0, context.parallelModPow(new BigInteger[0], new BigInteger[0]).length);
+        assertThrows(IllegalArgumentException.class, () -> context.modPow(bases, new BigInteger[1]));
+    }
+
+    @Test
+    public void batch_mod_inverse() {
+        BigInteger odd = randomHarmony(700).setBit(0);
+        BigInteger even = randomHarmony(300).shiftLeft(3);
+        for (BigInteger m : new BigInteger[] { odd, even, BigInteger.valueOf(2), BigInteger.valueOf(3) }) {
+            BigInteger values[] = new BigInteger[29];
+            for (int i = 0; i < values.length; i++) {
+                BigInteger value = randomHarmony(10 + 37 * i).setBit(0);
+                while (!value.gcd(m).isOne()) {
+                    value = value.add(BigInteger.valueOf(2));
+                }
+                values[i] = ((i % 3) == 0) ? value.negate() : value;
+            }
+            BigInteger inverses[] = BigInteger.batchModInverse(values, m);
+            for (int i = 0; i < values.length; i++) {
+                assertEquals(jdk(values[i]).modInverse(jdk(m)), jdk(inverses[i]));
+            }
+            values[7] = m.multiply(BigInteger.TEN);
+            assertThrows(ArithmeticException.class, () -> BigInteger.batchModInverse(values, m));
+        }
+        assertEquals(BigInteger.ZERO, BigInteger.batchModInverse(new BigInteger[] { BigInteger.TEN }, BigInteger.ONE)[0]);
+        assertEquals(0, new MontgomeryContext(odd).modInverse(new BigInteger[0]).length);
+        assertThrows(ArithmeticException.class, () -> BigInteger.batchModInverse(new BigInteger[0], BigInteger.ZERO));
+    }
+
+    @Test
+    public void mod_pow_special_cases() {
+        BigInteger m = BigInteger.valueOf(101);
+        MontgomeryContext context = new MontgomeryContext(m);
+        assertEquals(BigInteger.ONE, context.modPow(BigInteger.TEN, BigInteger.ZERO));
+        assertEquals(BigInteger.ZERO, context.modPow(BigInteger.ZERO, BigInteger.TEN));
+        assertEquals(BigInteger.valueOf(91), context.modPow(BigInteger.TEN, BigInteger.ONE.negate()));
+        assertEquals(BigInteger.ZERO, new MontgomeryContext(BigInteger.ONE).modPow(BigInteger.TEN, BigInteger.TEN));
+        assertThrows(ArithmeticException.class,
+                () -> new MontgomeryContext(BigInteger.valueOf(15)).modPow(BigInteger.TEN, BigInteger.ONE.negate()));
+    }
+
+    @Test
+    public void mod_mul_in_montgomery_form() {
+        BigInteger m = randomHarmony(1000).setBit(0);
+        MontgomeryContext context = new MontgomeryContext(m);
+        BigInteger a = randomHarmony(1200);
+        BigInteger b = randomHarmony(900).negate();
+        BigInteger product = context.modMul(context.toMontgomery(a), context.toMontgomery(b));
+        assertEquals(jdk(a).multiply(jdk(b)).mod(jdk(m)), jdk(context.fromMontgomery(product)));
+        assertEquals(jdk(a).mod(jdk(m)), jdk(context.fromMontgomery(context.toMontgomery(a))));
+    }
+
+    @Test
+    public void modulus_not_odd_or_not_positive() {
+        assertThrows(ArithmeticException.class, () -> new MontgomeryContext(BigInteger.TEN));
+        assertThrows(ArithmeticException.class, () -> new MontgomeryContext(BigInteger.ZERO));
+        assertThrows(ArithmeticException.class, () -> new MontgomeryContext(BigInteger.ONE.negate()));
+    }
+}
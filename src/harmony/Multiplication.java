@@ -19,6 +19,9 @@ package harmony;
 
 import harmony.internal.nls.Messages;
 
+import java.util.Arrays;
+import java.util.concurrent.RecursiveTask;
+
 /**
  * Static library that provides all multiplication of {@link BigInteger} methods.
  */
@@ -27,11 +30,48 @@ class Multiplication {
     /** Just to denote that this class can't be instantiated. */
     private Multiplication() {}
 
+    /*
+     * The break points below are not final so that Calibration can try
+     * other values, see Thresholds for how they are configured.
+     */
+
     /**
      * Break point in digits (number of {@code int} elements)
      * between Karatsuba and Pencil and Paper multiply.
      */
-    static final int whenUseKaratsuba = 63; // an heuristic value
+    static int whenUseKaratsuba = Thresholds.get("karatsubaThreshold", 63); //$NON-NLS-1$
+
+    /**
+     * Break point in digits (number of {@code int} elements)
+     * between Toom-Cook 3-way and Karatsuba multiply.
+     */
+    static int whenUseToomCook3 = Thresholds.get("toomCook3Threshold", 480); //$NON-NLS-1$
+
+    /**
+     * Break point in digits (number of {@code int} elements)
+     * between Karatsuba and Pencil and Paper square.
+     */
+    static int whenUseKaratsubaSquare = Thresholds.get("karatsubaSquareThreshold", 128); //$NON-NLS-1$
+
+    /**
+     * Break point in digits (number of {@code int} elements)
+     * between Toom-Cook 3-way and Karatsuba square.
+     */
+    static int whenUseToomCook3Square = Thresholds.get("toomCook3SquareThreshold", 240); //$NON-NLS-1$
+
+    /**
+     * Break point in digits (number of {@code int} elements)
+     * between the number-theoretic transform and Toom-Cook 3-way multiply.
+     */
+    static int whenUseNTT = Thresholds.get("nttThreshold", 3500); //$NON-NLS-1$
+
+    /**
+     * Size in digits (number of {@code int} elements) from which the
+     * sub-products of a parallel multiplication are forked to the common
+     * {@code ForkJoinPool}. It can be set with the system property
+     * {@code harmony.math.parallelThreshold}.
+     */
+    static int whenUseParallel = Thresholds.get("parallelThreshold", 1024); //$NON-NLS-1$
 
     /**
      * An array with powers of ten that fit in the type {@code int}.
@@ -84,7 +124,109 @@ class Multiplication {
      * @see BigInteger#multiply(BigInteger)
      */
     static BigInteger multiply(BigInteger x, BigInteger y) {
-        return karatsuba(x, y);
+        return multiply(x, y, false);
+    }
+
+    /**
+     * Performs a multiplication of two BigInteger forking the independent
+     * sub-products of the large recursive algorithms to the common
+     * {@code ForkJoinPool}.
+     * @see BigInteger#parallelMultiply(BigInteger)
+     */
+    static BigInteger parallelMultiply(BigInteger x, BigInteger y) {
+        return multiply(x, y, true);
+    }
+
+    private static BigInteger multiply(BigInteger x, BigInteger y, boolean parallel) {
+        if ((x.sign == 0) || (y.sign == 0)) {
+            return BigInteger.ZERO;
+        }
+        if (x == y) {
+            return square(x, parallel);
+        }
+        if ((x.numberLength < whenUseToomCook3)
+                || (y.numberLength < whenUseToomCook3)) {
+            return karatsuba(x, y, parallel);
+        }
+        boolean fitsNTT = (x.numberLength + y.numberLength <= NumberTheoreticTransform.maxLength);
+        if ((x.numberLength >= whenUseNTT) && (y.numberLength >= whenUseNTT) && fitsNTT) {
+            return NumberTheoreticTransform.multiply(x, y, parallel);
+        }
+        if (x.numberLength >= (y.numberLength << 1)) {
+            return unbalancedMultiply(x, y, parallel);
+        }
+        if (y.numberLength >= (x.numberLength << 1)) {
+            return unbalancedMultiply(y, x, parallel);
+        }
+        return toomCook3(x, y, parallel);
+    }
+
+    /**
+     * Multiplies two factors of very different lengths. The longer factor is
+     * cut in chunks as long as the shorter one and every chunk is multiplied
+     * by the shorter factor, so each sub-product is a balanced one and
+     * Toom-Cook does not waste products on the zero slices of the shorter
+     * factor.
+     *
+     * @param op1 the longer factor, {@code op1.numberLength >= 2 * op2.numberLength}
+     * @param op2 the shorter factor
+     * @return {@code op1 * op2}
+     * @see #multiply(BigInteger, BigInteger)
+     */
+    private static BigInteger unbalancedMultiply(BigInteger op1, BigInteger op2, boolean parallel) {
+        int aLen = op1.numberLength;
+        int bLen = op2.numberLength;
+        int chunks = (aLen + bLen - 1) / bLen;
+        BigInteger positiveOp2 = op2.abs();
+        int resLength = aLen + bLen;
+        int resDigits[] = new int[resLength];
+        RecursiveMultiply tasks[] = null;
+        if (parallel && (aLen >= whenUseParallel)) {
+            tasks = new RecursiveMultiply[chunks];
+            for (int i = 1; i < chunks; i++) {
+                tasks[i] = RecursiveMultiply.fork(slice(op1, i * bLen, (i + 1) * bLen), positiveOp2);
+            }
+        }
+        for (int i = 0; i < chunks; i++) {
+            int start = i * bLen;
+            BigInteger product = ((tasks == null) || (i == 0))
+                    ? multiply(slice(op1, start, start + bLen), positiveOp2, parallel)
+                    : tasks[i].join();
+            addTo(resDigits, start, resLength - start, product.digits, 0, product.numberLength);
+        }
+        BigInteger result = new BigInteger((op1.sign != op2.sign) ? -1 : 1, resLength, resDigits);
+        result.cutOffLeadingZeroes();
+        return result;
+    }
+
+    /**
+     * A sub-product of a parallel multiplication, computed in the common
+     * {@code ForkJoinPool}.
+     */
+    private static final class RecursiveMultiply extends RecursiveTask<BigInteger> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final BigInteger x;
+
+        private final BigInteger y;
+
+        RecursiveMultiply(BigInteger x, BigInteger y) {
+            this.x = x;
+            this.y = y;
+        }
+
+        /** Creates the task of computing {@code x * y} and forks it. */
+        static RecursiveMultiply fork(BigInteger x, BigInteger y) {
+            RecursiveMultiply task = new RecursiveMultiply(x, y);
+            task.fork();
+            return task;
+        }
+
+        @Override
+        protected BigInteger compute() {
+            return multiply(x, y, true);
+        }
     }
 
     /**
@@ -104,6 +246,10 @@ class Multiplication {
      * @see #multiply(BigInteger, BigInteger)
      */
     static BigInteger karatsuba(BigInteger op1, BigInteger op2) {
+        return karatsuba(op1, op2, false);
+    }
+
+    private static BigInteger karatsuba(BigInteger op1, BigInteger op2, boolean parallel) {
         BigInteger temp;
         if (op2.numberLength > op1.numberLength) {
             temp = op1;
@@ -113,21 +259,35 @@ class Multiplication {
         if (op2.numberLength < whenUseKaratsuba) {
             return multiplyPAP(op1, op2);
         }
+        int aLen = op1.numberLength;
+        int bLen = op2.numberLength;
+        if (!parallel || (aLen < whenUseParallel)) {
+            int resLength = aLen + bLen;
+            int resDigits[] = new int[resLength];
+            karatsuba(op1.digits, 0, aLen, op2.digits, 0, bLen, resDigits, 0,
+                    new int[karatsubaWorkLength(aLen, bLen)], 0);
+            BigInteger result = new BigInteger((op1.sign != op2.sign) ? -1 : 1,
+                    resLength, resDigits);
+            result.cutOffLeadingZeroes();
+            return result;
+        }
         /*  Karatsuba:  u = u1*B + u0
          *              v = v1*B + v0
          *  u*v = (u1*v1)*B^2 + ((u1-u0)*(v0-v1) + u1*v1 + u0*v0)*B + u0*v0
          */
         // ndiv2 = (op1.numberLength / 2) * 32
-        int ndiv2 = (op1.numberLength & 0xFFFFFFFE) << 4;
+        int ndiv2 = (aLen & 0xFFFFFFFE) << 4;
         BigInteger upperOp1 = op1.shiftRight(ndiv2);
         BigInteger upperOp2 = op2.shiftRight(ndiv2);
         BigInteger lowerOp1 = op1.subtract(upperOp1.shiftLeft(ndiv2));
         BigInteger lowerOp2 = op2.subtract(upperOp2.shiftLeft(ndiv2));
 
-        BigInteger upper = karatsuba(upperOp1, upperOp2);
-        BigInteger lower = karatsuba(lowerOp1, lowerOp2);
-        BigInteger middle = karatsuba( upperOp1.subtract(lowerOp1),
-                lowerOp2.subtract(upperOp2));
+        RecursiveMultiply upperTask = RecursiveMultiply.fork(upperOp1, upperOp2);
+        RecursiveMultiply middleTask = RecursiveMultiply.fork(
+                upperOp1.subtract(lowerOp1), lowerOp2.subtract(upperOp2));
+        BigInteger lower = karatsuba(lowerOp1, lowerOp2, true);
+        BigInteger upper = upperTask.join();
+        BigInteger middle = middleTask.join();
         middle = middle.add(upper).add(lower);
         middle = middle.shiftLeft(ndiv2);
         upper = upper.shiftLeft(ndiv2 << 1);
@@ -135,6 +295,475 @@ class Multiplication {
         return upper.add(middle).add(lower);
     }
 
+    /**
+     * Multiplies the digits {@code [aOff, aOff + aLen)} of {@code a} by the
+     * digits {@code [bOff, bOff + bLen)} of {@code b} with the Karatsuba's
+     * algorithm and saves the {@code aLen + bLen} digits of the product in
+     * {@code res} from {@code resOff}. Every intermediate value lives in
+     * {@code work} from {@code workOff}, which must have room for
+     * {@link #karatsubaWorkLength(int, int)} digits, so nothing is
+     * allocated.
+     * <p>
+     * The middle term is obtained from
+     * {@code |u0 - u1| * |v0 - v1|}, this way every partial product
+     * is a product of non-negative numbers.
+     *
+     * @see #karatsuba(BigInteger, BigInteger)
+     */
+    static void karatsuba(int a[], int aOff, int aLen, int b[], int bOff, int bLen,
+            int res[], int resOff, int work[], int workOff) {
+        // PRE: aLen >= bLen > 0
+        if (bLen < whenUseKaratsuba) {
+            Arrays.fill(res, resOff, resOff + aLen + bLen, 0);
+            multPAP(a, aOff, aLen, b, bOff, bLen, res, resOff);
+            return;
+        }
+        int half = (aLen + 1) >> 1;
+        int upperLen = aLen - half;
+        if (bLen <= half) {
+            // Unbalanced factors: only a is split, u*v = u1*v*B + u0*v
+            karatsuba(a, aOff, half, b, bOff, bLen, res, resOff, work, workOff);
+            int upperProductLen = upperLen + bLen;
+            int upperWorkOff = workOff + upperProductLen;
+            if (upperLen >= bLen) {
+                karatsuba(a, aOff + half, upperLen, b, bOff, bLen,
+                        work, workOff, work, upperWorkOff);
+            } else {
+                karatsuba(b, bOff, bLen, a, aOff + half, upperLen,
+                        work, workOff, work, upperWorkOff);
+            }
+            Arrays.fill(res, resOff + half + bLen, resOff + aLen + bLen, 0);
+            addTo(res, resOff + half, upperProductLen, work, workOff, upperProductLen);
+            return;
+        }
+        int upperBLen = bLen - half;
+        int middleLen = (half << 1) + 1;
+        int diffA = workOff;
+        int diffB = workOff + half;
+        int middle = workOff + (half << 1);
+
+        // u0*v0 and u1*v1 go straight to their place in the result
+        karatsuba(a, aOff, half, b, bOff, half, res, resOff, work, workOff);
+        if (upperLen >= upperBLen) {
+            karatsuba(a, aOff + half, upperLen, b, bOff + half, upperBLen,
+                    res, resOff + (half << 1), work, workOff);
+        } else {
+            karatsuba(b, bOff + half, upperBLen, a, aOff + half, upperLen,
+                    res, resOff + (half << 1), work, workOff);
+        }
+        boolean negative = absoluteDifference(work, diffA, a, aOff, half, aOff + half, upperLen)
+                != absoluteDifference(work, diffB, b, bOff, half, bOff + half, upperBLen);
+        karatsuba(work, diffA, half, work, diffB, half, work, middle,
+                work, middle + middleLen);
+        work[middle + middleLen - 1] = 0;
+        // middle = u0*v0 + u1*v1 - (u0 - u1)*(v0 - v1), computed modulo B^middleLen
+        if (!negative) {
+            negate(work, middle, middleLen);
+        }
+        addTo(work, middle, middleLen, res, resOff, half << 1);
+        addTo(work, middle, middleLen, res, resOff + (half << 1), upperLen + upperBLen);
+        addTo(res, resOff + half, aLen + bLen - half, work, middle, middleLen);
+    }
+
+    /**
+     * Returns the number of digits of the work area needed by
+     * {@link #karatsuba(int[], int, int, int[], int, int, int[], int, int[], int)}
+     * to multiply factors of {@code aLen} and {@code bLen} digits.
+     */
+    static int karatsubaWorkLength(int aLen, int bLen) {
+        // PRE: aLen >= bLen > 0
+        if (bLen < whenUseKaratsuba) {
+            return 0;
+        }
+        int half = (aLen + 1) >> 1;
+        int upperLen = aLen - half;
+        if (bLen <= half) {
+            int upperProductLen = upperLen + bLen;
+            return Math.max(karatsubaWorkLength(half, bLen), upperProductLen
+                    + karatsubaWorkLength(Math.max(upperLen, bLen), Math.min(upperLen, bLen)));
+        }
+        int upperBLen = bLen - half;
+        return Math.max(karatsubaWorkLength(Math.max(upperLen, upperBLen),
+                Math.min(upperLen, upperBLen)),
+                (half << 2) + 1 + karatsubaWorkLength(half, half));
+    }
+
+    /**
+     * Saves in {@code res} from {@code resOff} the {@code lowLen} digits of
+     * {@code |low - high|}, where {@code low} are the digits
+     * {@code [lowOff, lowOff + lowLen)} of {@code a} and {@code high} the
+     * digits {@code [highOff, highOff + highLen)} of {@code a}.
+     *
+     * @return {@code true} if {@code low < high}
+     */
+    private static boolean absoluteDifference(int res[], int resOff, int a[],
+            int lowOff, int lowLen, int highOff, int highLen) {
+        // PRE: lowLen >= highLen
+        int i = lowLen - 1;
+        while (i >= highLen && a[lowOff + i] == 0) {
+            i--;
+        }
+        if (i < highLen) {
+            while (i >= 0 && a[lowOff + i] == a[highOff + i]) {
+                i--;
+            }
+        }
+        boolean lowIsLess = (i >= 0) && (i < highLen)
+                && ((a[lowOff + i] ^ Integer.MIN_VALUE) < (a[highOff + i] ^ Integer.MIN_VALUE));
+        int minuend = lowIsLess ? highOff : lowOff;
+        int subtrahend = lowIsLess ? lowOff : highOff;
+        long borrow = 0;
+        for (int j = 0; j < lowLen; j++) {
+            long m = (lowIsLess && j >= highLen) ? 0 : (a[minuend + j] & 0xFFFFFFFFL);
+            long s = (!lowIsLess && j >= highLen) ? 0 : (a[subtrahend + j] & 0xFFFFFFFFL);
+            borrow += m - s;
+            res[resOff + j] = (int) borrow;
+            borrow >>= 32;
+        }
+        return lowIsLess;
+    }
+
+    /**
+     * Adds the digits {@code [aOff, aOff + aLen)} of {@code a} to the
+     * digits {@code [resOff, resOff + resLen)} of {@code res}, the carry
+     * out of the last digit of {@code res} is lost.
+     */
+    private static void addTo(int res[], int resOff, int resLen, int a[], int aOff, int aLen) {
+        int len = Math.min(resLen, aLen);
+        long carry = 0;
+        int i = 0;
+        for (; i < len; i++) {
+            carry += (res[resOff + i] & 0xFFFFFFFFL) + (a[aOff + i] & 0xFFFFFFFFL);
+            res[resOff + i] = (int) carry;
+            carry >>>= 32;
+        }
+        for (; carry != 0 && i < resLen; i++) {
+            carry += res[resOff + i] & 0xFFFFFFFFL;
+            res[resOff + i] = (int) carry;
+            carry >>>= 32;
+        }
+    }
+
+    /**
+     * Replaces the digits {@code [resOff, resOff + resLen)} of {@code res}
+     * by their two's complement.
+     */
+    private static void negate(int res[], int resOff, int resLen) {
+        long borrow = 0;
+        for (int i = resOff; i < resOff + resLen; i++) {
+            borrow -= res[i] & 0xFFFFFFFFL;
+            res[i] = (int) borrow;
+            borrow >>= 32;
+        }
+    }
+
+
+    /**
+     * Performs the multiplication with the Toom-Cook 3-way algorithm. Both
+     * factors are split in three slices of {@code k} digits and the product
+     * is obtained from five products of slices of size {@code k}, evaluated
+     * in the points {@code 0, 1, -1, 2} and {@code infinity}.
+     * <b>Toom-Cook 3-way algorithm:</b>
+     *<tt>
+     *             u = u<sub>2</sub> * B<sup>2</sup> + u<sub>1</sub> * B + u<sub>0</sub><br>
+     *             v = v<sub>2</sub> * B<sup>2</sup> + v<sub>1</sub> * B + v<sub>0</sub><br>
+     *</tt>
+     * The interpolation follows the sequence proposed by M. Bodrato and
+     * A. Zanoni, "What about Toom-Cook matrices optimality?".
+     *
+     * @param op1 first factor of the product
+     * @param op2 second factor of the product
+     * @return {@code op1 * op2}
+     * @see #multiply(BigInteger, BigInteger)
+     */
+    static BigInteger toomCook3(BigInteger op1, BigInteger op2) {
+        return toomCook3(op1, op2, false);
+    }
+
+    private static BigInteger toomCook3(BigInteger op1, BigInteger op2, boolean parallel) {
+        int largest = Math.max(op1.numberLength, op2.numberLength);
+        // k is the size (in ints) of the lower slices, the upper one gets the rest
+        int k = (largest + 2) / 3;
+
+        BigInteger a0 = slice(op1, 0, k);
+        BigInteger a1 = slice(op1, k, k << 1);
+        BigInteger a2 = slice(op1, k << 1, largest);
+        BigInteger b0 = slice(op2, 0, k);
+        BigInteger b1 = slice(op2, k, k << 1);
+        BigInteger b2 = slice(op2, k << 1, largest);
+
+        // Evaluation: v(0), v(1), v(-1), v(2) and v(infinity)
+        BigInteger da1 = a2.add(a0);
+        BigInteger db1 = b2.add(b0);
+        BigInteger dam1 = da1.subtract(a1);
+        BigInteger dbm1 = db1.subtract(b1);
+        da1 = da1.add(a1);
+        db1 = db1.add(b1);
+        BigInteger da2 = da1.add(a2).shiftLeft(1).subtract(a0);
+        BigInteger db2 = db1.add(b2).shiftLeft(1).subtract(b0);
+        BigInteger v0, v1, vm1, v2, vinf;
+        if (parallel && (largest >= whenUseParallel)) {
+            RecursiveMultiply v0Task = RecursiveMultiply.fork(a0, b0);
+            RecursiveMultiply v1Task = RecursiveMultiply.fork(da1, db1);
+            RecursiveMultiply vm1Task = RecursiveMultiply.fork(dam1, dbm1);
+            RecursiveMultiply v2Task = RecursiveMultiply.fork(da2, db2);
+            vinf = multiply(a2, b2, true);
+            v0 = v0Task.join();
+            v1 = v1Task.join();
+            vm1 = vm1Task.join();
+            v2 = v2Task.join();
+        } else {
+            v0 = multiply(a0, b0, parallel);
+            v1 = multiply(da1, db1, parallel);
+            vm1 = multiply(dam1, dbm1, parallel);
+            v2 = multiply(da2, db2, parallel);
+            vinf = multiply(a2, b2, parallel);
+        }
+        BigInteger result = toomInterpolate(v0, v1, vm1, v2, vinf, k);
+        return (op1.sign != op2.sign) ? result.negate() : result;
+    }
+
+    /**
+     * Recovers the product of the Toom-Cook 3-way algorithm from its values
+     * in the points {@code 0, 1, -1, 2} and {@code infinity}.
+     *
+     * @param k the size in digits of the lower slices
+     * @return the product of the magnitudes of the factors
+     * @see #toomCook3(BigInteger, BigInteger)
+     * @see #toomCook3Square(BigInteger, boolean)
+     */
+    private static BigInteger toomInterpolate(BigInteger v0, BigInteger v1,
+            BigInteger vm1, BigInteger v2, BigInteger vinf, int k) {
+        // Interpolation: all divisions are exact
+        BigInteger t2 = exactDivideBy3(v2.subtract(vm1));
+        BigInteger tm1 = v1.subtract(vm1).shiftRight(1);
+        BigInteger t1 = v1.subtract(v0);
+        t2 = t2.subtract(t1).shiftRight(1);
+        t1 = t1.subtract(tm1).subtract(vinf);
+        t2 = t2.subtract(vinf.shiftLeft(1));
+        tm1 = tm1.subtract(t2);
+
+        // Recomposition
+        int kBits = k << 5;
+        return vinf.shiftLeft(kBits).add(t2).shiftLeft(kBits)
+                .add(t1).shiftLeft(kBits).add(tm1).shiftLeft(kBits).add(v0);
+    }
+
+    /**
+     * Returns the digits {@code [start, end)} of the magnitude of
+     * {@code val}; the digits beyond {@code val.numberLength} are zero.
+     *
+     * @param val the number to be sliced
+     * @param start the first digit of the slice
+     * @param end the digit after the last one of the slice
+     * @return a non-negative {@code BigInteger} holding the slice
+     */
+    static BigInteger slice(BigInteger val, int start, int end) {
+        end = Math.min(end, val.numberLength);
+        if (start >= end) {
+            return BigInteger.ZERO;
+        }
+        int sliceLength = end - start;
+        int sliceDigits[] = new int[sliceLength];
+        System.arraycopy(val.digits, start, sliceDigits, 0, sliceLength);
+        BigInteger slice = new BigInteger(1, sliceLength, sliceDigits);
+        slice.cutOffLeadingZeroes();
+        return slice;
+    }
+
+    /**
+     * Divides a number by three, being the division exact. It multiplies by
+     * the inverse of {@code 3} modulo {@code 2<sup>32</sup>} instead of
+     * dividing, see Hacker's Delight, section 10-17.
+     *
+     * @param val a multiple of {@code 3}
+     * @return {@code val / 3}
+     */
+    static BigInteger exactDivideBy3(BigInteger val) {
+        if (val.sign == 0) {
+            return BigInteger.ZERO;
+        }
+        int valLength = val.numberLength;
+        int valDigits[] = val.digits;
+        int resDigits[] = new int[valLength];
+        long borrow = 0;
+
+        for (int i = 0; i < valLength; i++) {
+            long x = valDigits[i] & 0xFFFFFFFFL;
+            long w = x - borrow;
+            borrow = (borrow > x) ? 1 : 0;
+            // 0xAAAAAAAB is the inverse of 3 (mod 2^32)
+            long q = (w * 0xAAAAAAABL) & 0xFFFFFFFFL;
+            resDigits[i] = (int) q;
+            // the borrow is the number of times 3 * q exceeded 2^32
+            if (q >= 0x55555556L) {
+                borrow++;
+                if (q >= 0xAAAAAAABL) {
+                    borrow++;
+                }
+            }
+        }
+        BigInteger result = new BigInteger(val.sign, valLength, resDigits);
+        result.cutOffLeadingZeroes();
+        return result;
+    }
+
+    /**
+     * Performs the square of a BigInteger and hides the algorithm used.
+     * @see #multiply(BigInteger, BigInteger)
+     */
+    static BigInteger square(BigInteger x) {
+        return square(x, false);
+    }
+
+    private static BigInteger square(BigInteger x, boolean parallel) {
+        if (x.sign == 0) {
+            return BigInteger.ZERO;
+        }
+        int xLen = x.numberLength;
+        if (xLen < whenUseKaratsubaSquare) {
+            int resLength = xLen << 1;
+            BigInteger result = new BigInteger(1, resLength,
+                    square(x.digits, xLen, new int[resLength]));
+            result.cutOffLeadingZeroes();
+            return result;
+        }
+        if (xLen < whenUseToomCook3Square) {
+            return karatsubaSquare(x, parallel);
+        }
+        if ((xLen < whenUseNTT) || (xLen << 1 > NumberTheoreticTransform.maxLength)) {
+            return toomCook3Square(x, parallel);
+        }
+        return NumberTheoreticTransform.multiply(x, x, parallel);
+    }
+
+    /**
+     * Performs the square with the Karatsuba's algorithm, which needs
+     * three half sized squares instead of the three products of
+     * {@link #karatsuba(BigInteger, BigInteger)}.
+     *<tt>
+     *             u = u<sub>1</sub> * B + u<sub>0</sub><br>
+     *
+     *  u<sup>2</sup> = u<sub>1</sub><sup>2</sup> * B<sup>2</sup> + (u<sub>1</sub><sup>2</sup> + u<sub>0</sub><sup>2</sup> - (u<sub>1</sub> - u<sub>0</sub>)<sup>2</sup>) * B + u<sub>0</sub><sup>2</sup><br>
+     *</tt>
+     * @param x the number to square
+     * @return {@code x * x}
+     * @see #square(BigInteger)
+     */
+    private static BigInteger karatsubaSquare(BigInteger x, boolean parallel) {
+        int xLen = x.numberLength;
+        if (!parallel || (xLen < whenUseParallel)) {
+            int resLength = xLen << 1;
+            int resDigits[] = new int[resLength];
+            karatsubaSquare(x.digits, 0, xLen, resDigits, 0,
+                    new int[karatsubaSquareWorkLength(xLen)], 0);
+            BigInteger result = new BigInteger(1, resLength, resDigits);
+            result.cutOffLeadingZeroes();
+            return result;
+        }
+        int half = (xLen + 1) >> 1;
+        BigInteger upperX = slice(x, half, xLen);
+        BigInteger lowerX = slice(x, 0, half);
+        BigInteger diff = upperX.subtract(lowerX);
+        RecursiveMultiply upperTask = RecursiveMultiply.fork(upperX, upperX);
+        RecursiveMultiply middleTask = RecursiveMultiply.fork(diff, diff);
+        BigInteger lower = square(lowerX, true);
+        BigInteger upper = upperTask.join();
+        BigInteger middle = middleTask.join();
+        middle = upper.add(lower).subtract(middle);
+        int halfBits = half << 5;
+        return upper.shiftLeft(halfBits).add(middle).shiftLeft(halfBits).add(lower);
+    }
+
+    /**
+     * Squares the digits {@code [aOff, aOff + aLen)} of {@code a} with the
+     * Karatsuba's algorithm and saves the {@code 2 * aLen} digits of the
+     * square in {@code res} from {@code resOff}. Every intermediate value
+     * lives in {@code work} from {@code workOff}, which must have room for
+     * {@link #karatsubaSquareWorkLength(int)} digits.
+     *
+     * @see #karatsuba(int[], int, int, int[], int, int, int[], int, int[], int)
+     */
+    static void karatsubaSquare(int a[], int aOff, int aLen, int res[], int resOff,
+            int work[], int workOff) {
+        if (aLen < whenUseKaratsubaSquare) {
+            Arrays.fill(res, resOff, resOff + (aLen << 1), 0);
+            square(a, aOff, aLen, res, resOff);
+            return;
+        }
+        int half = (aLen + 1) >> 1;
+        int upperLen = aLen - half;
+        int middleLen = (half << 1) + 1;
+        int middle = workOff;
+        int diff = workOff + middleLen;
+
+        karatsubaSquare(a, aOff, half, res, resOff, work, workOff);
+        karatsubaSquare(a, aOff + half, upperLen, res, resOff + (half << 1), work, workOff);
+        absoluteDifference(work, diff, a, aOff, half, aOff + half, upperLen);
+        karatsubaSquare(work, diff, half, work, middle, work, diff + half);
+        work[middle + middleLen - 1] = 0;
+        // middle = u0^2 + u1^2 - (u0 - u1)^2, computed modulo B^middleLen
+        negate(work, middle, middleLen);
+        addTo(work, middle, middleLen, res, resOff, half << 1);
+        addTo(work, middle, middleLen, res, resOff + (half << 1), upperLen << 1);
+        addTo(res, resOff + half, (aLen << 1) - half, work, middle, middleLen);
+    }
+
+    /**
+     * Returns the number of digits of the work area needed by
+     * {@link #karatsubaSquare(int[], int, int, int[], int, int[], int)}
+     * to square a number of {@code aLen} digits.
+     */
+    static int karatsubaSquareWorkLength(int aLen) {
+        if (aLen < whenUseKaratsubaSquare) {
+            return 0;
+        }
+        int half = (aLen + 1) >> 1;
+        return 3 * half + 1 + karatsubaSquareWorkLength(half);
+    }
+
+    /**
+     * Performs the square with the Toom-Cook 3-way algorithm, evaluating
+     * the square of the three slices polynomial in the same points as
+     * {@link #toomCook3(BigInteger, BigInteger)}.
+     *
+     * @param x the number to square
+     * @return {@code x * x}
+     * @see #square(BigInteger)
+     */
+    private static BigInteger toomCook3Square(BigInteger x, boolean parallel) {
+        int xLen = x.numberLength;
+        int k = (xLen + 2) / 3;
+
+        BigInteger a0 = slice(x, 0, k);
+        BigInteger a1 = slice(x, k, k << 1);
+        BigInteger a2 = slice(x, k << 1, xLen);
+
+        BigInteger da1 = a2.add(a0);
+        BigInteger dam1 = da1.subtract(a1);
+        da1 = da1.add(a1);
+        BigInteger da2 = da1.add(a2).shiftLeft(1).subtract(a0);
+        BigInteger v0, v1, vm1, v2, vinf;
+        if (parallel && (xLen >= whenUseParallel)) {
+            RecursiveMultiply v0Task = RecursiveMultiply.fork(a0, a0);
+            RecursiveMultiply v1Task = RecursiveMultiply.fork(da1, da1);
+            RecursiveMultiply vm1Task = RecursiveMultiply.fork(dam1, dam1);
+            RecursiveMultiply v2Task = RecursiveMultiply.fork(da2, da2);
+            vinf = square(a2, true);
+            v0 = v0Task.join();
+            v1 = v1Task.join();
+            vm1 = vm1Task.join();
+            v2 = v2Task.join();
+        } else {
+            v0 = square(a0, parallel);
+            v1 = square(da1, parallel);
+            vm1 = square(dam1, parallel);
+            v2 = square(da2, parallel);
+            vinf = square(a2, parallel);
+        }
+        return toomInterpolate(v0, v1, vm1, v2, vinf, k);
+    }
+
     /**
      * Multiplies two BigIntegers.
      * Implements traditional scholar algorithm described by Knuth.
@@ -264,16 +893,54 @@ class Multiplication {
             square(a, aLen, t);
             return;
         }
+        multPAP(a, 0, aLen, b, 0, bLen, t, 0);
+    }
 
-        for(int i = 0; i < aLen; i++){
+    /**
+     * Multiplies the digits {@code [aOff, aOff + aLen)} of {@code a} by the
+     * digits {@code [bOff, bOff + bLen)} of {@code b} and saves the
+     * {@code aLen + bLen} digits of the product in {@code t} from
+     * {@code tOff}. The digits {@code [tOff, tOff + bLen)} of {@code t}
+     * must be zero.
+     * <p>
+     * The digits of {@code a} are taken in pairs, each digit of {@code t}
+     * is loaded and stored once for both rows and each digit of {@code b}
+     * is loaded once for both rows. Each row keeps its own carry, so no sum
+     * exceeds 64 bits.
+     */
+    private static void multPAP(int a[], int aOff, int aLen, int b[], int bOff, int bLen,
+            int t[], int tOff) {
+        int i = 0;
+        for (; i + 1 < aLen; i += 2) {
+            long a0 = a[aOff + i] & 0xFFFFFFFFL;
+            long a1 = a[aOff + i + 1] & 0xFFFFFFFFL;
+            int tI = tOff + i;
+            long bPrevious = b[bOff] & 0xFFFFFFFFL;
+            // carry0 accumulates the row of a0, carry1 adds the row of a1 one digit behind
+            long carry0 = a0 * bPrevious + (t[tI] & 0xFFFFFFFFL);
+            long carry1 = 0;
+            t[tI] = (int) carry0;
+            for (int j = 1; j < bLen; j++) {
+                long bJ = b[bOff + j] & 0xFFFFFFFFL;
+                carry0 = a0 * bJ + (t[tI + j] & 0xFFFFFFFFL) + (carry0 >>> 32);
+                carry1 = a1 * bPrevious + (carry0 & 0xFFFFFFFFL) + (carry1 >>> 32);
+                t[tI + j] = (int) carry1;
+                bPrevious = bJ;
+            }
+            carry1 = a1 * bPrevious + (carry0 >>> 32) + (carry1 >>> 32);
+            t[tI + bLen] = (int) carry1;
+            t[tI + bLen + 1] = (int) (carry1 >>> 32);
+        }
+        if (i < aLen) {
             long carry = 0;
-            int aI = a[i];
+            int aI = a[aOff + i];
+            int tI = tOff + i;
             for (int j = 0; j < bLen; j++){
-                carry = unsignedMultAddAdd(aI, b[j], t[i+j], (int)carry);
-                t[i+j] = (int) carry;
+                carry = unsignedMultAddAdd(aI, b[bOff + j], t[tI + j], (int)carry);
+                t[tI + j] = (int) carry;
                 carry >>>= 32;
             }
-            t[i+bLen] = (int) carry;
+            t[tI + bLen] = (int) carry;
         }
     }
 
@@ -350,13 +1017,7 @@ class Multiplication {
                 res = res.multiply(acc);
             }
             // acc = base^(2^i)
-            //a limit where karatsuba performs a faster square than the square algorithm
-            if ( acc.numberLength == 1 ){
-                acc = acc.multiply(acc); // square
-            }
-            else{
-                acc = new BigInteger(1, square(acc.digits, acc.numberLength, new int [acc.numberLength<<1]));
-            }
+            acc = square(acc);
         }
         // exponent == 1, multiply one more time
         res = res.multiply(acc);
@@ -369,23 +1030,66 @@ class Multiplication {
      *  @param aLen The length of the number to square.
      */
     static int[] square(int[] a, int aLen, int[] res) {
+        square(a, 0, aLen, res, 0);
+        return res;
+    }
+
+    /**
+     * Squares the digits {@code [aOff, aOff + aLen)} of {@code a} and saves
+     * the {@code 2 * aLen} digits of the square in {@code res} from
+     * {@code resOff}. The digits {@code [resOff, resOff + aLen)} of
+     * {@code res} must be zero. The cross products are accumulated two rows
+     * at a time, as in {@link #multPAP(int[], int, int, int[], int, int, int[], int)}.
+     */
+    private static void square(int[] a, int aOff, int aLen, int[] res, int resOff) {
         long carry;
+        int i = 0;
 
-        for(int i = 0; i < aLen; i++){
+        for (; i + 2 < aLen; i += 2) {
+            // the row of a0 starts at a[i + 1], the row of a1 at a[i + 2]
+            long a0 = a[aOff + i] & 0xFFFFFFFFL;
+            long a1 = a[aOff + i + 1] & 0xFFFFFFFFL;
+            int resI = resOff + i;
+            long aPrevious = a[aOff + i + 2] & 0xFFFFFFFFL;
+            long carry0 = a0 * a1 + (res[resI + i + 1] & 0xFFFFFFFFL);
+            res[resI + i + 1] = (int) carry0;
+            carry0 = a0 * aPrevious + (res[resI + i + 2] & 0xFFFFFFFFL) + (carry0 >>> 32);
+            long carry1 = carry0 & 0xFFFFFFFFL;
+            res[resI + i + 2] = (int) carry1;
+            for (int j = i + 3; j < aLen; j++) {
+                long aJ = a[aOff + j] & 0xFFFFFFFFL;
+                carry0 = a0 * aJ + (res[resI + j] & 0xFFFFFFFFL) + (carry0 >>> 32);
+                carry1 = a1 * aPrevious + (carry0 & 0xFFFFFFFFL) + (carry1 >>> 32);
+                res[resI + j] = (int) carry1;
+                aPrevious = aJ;
+            }
+            carry1 = a1 * aPrevious + (carry0 >>> 32) + (carry1 >>> 32);
+            res[resI + aLen] = (int) carry1;
+            res[resI + aLen + 1] = (int) (carry1 >>> 32);
+        }
+        for (; i < aLen; i++) {
             carry = 0;
+            int aI = a[aOff + i];
             for (int j = i+1; j < aLen; j++){
-                carry = unsignedMultAddAdd(a[i], a[j], res[i+j], (int)carry);
-                res[i+j] = (int) carry;
+                int index = resOff + i + j;
+                carry = unsignedMultAddAdd(aI, a[aOff + j], res[index], (int)carry);
+                res[index] = (int) carry;
                 carry >>>= 32;
             }
-            res[i+aLen] = (int) carry;
+            res[resOff + i + aLen] = (int) carry;
         }
 
-        BitLevel.shiftLeftOneBit(res, res, aLen << 1);
+        // doubles the cross products
+        int resEnd = resOff + (aLen << 1);
+        for (int k = resEnd - 1; k > resOff; k--) {
+            res[k] = (res[k] << 1) | (res[k - 1] >>> 31);
+        }
+        res[resOff] <<= 1;
 
         carry = 0;
-        for(int i = 0, index = 0; i < aLen; i++, index++){
-            carry = unsignedMultAddAdd(a[i], a[i], res[index],(int)carry);
+        for(int k = 0, index = resOff; k < aLen; k++, index++){
+            int aK = a[aOff + k];
+            carry = unsignedMultAddAdd(aK, aK, res[index],(int)carry);
             res[index] = (int) carry;
             carry >>>= 32;
             index++;
@@ -393,7 +1097,6 @@ class Multiplication {
             res[index] = (int)carry;
             carry >>>= 32;
         }
-        return res;
     }
 
     /**
@@ -0,0 +1,122 @@
+package harmony;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class Multiplication_Test {
+
+    static final Random random = new Random();
+
+    @Test
+    public void multiply_below_karatsuba() {
+        assertMultiply(32 * 10, 32 * 20);
+        assertMultiply(32 * 7, 32 * 7);
+    }
+
+    @Test
+    public void multiply_below_karatsuba_all_ones() {
+        BigInteger x = BigInteger.ONE.shiftLeft(32 * 31).subtract(BigInteger.ONE);
+        BigInteger y = BigInteger.ONE.shiftLeft(32 * 17).subtract(BigInteger.ONE);
+        assertProduct(x, y);
+        assertProduct(x, x);
+    }
+
+    @Test
+    public void multiply_karatsuba() {
+        assertMultiply(32 * 100, 32 * 200);
+    }
+
+    @Test
+    public void multiply_karatsuba_unbalanced() {
+        assertMultiply(32 * 70, 32 * 400);
+        assertMultiply(32 * 150, 32 * 201);
+    }
+
+    @Test
+    public void multiply_karatsuba_all_ones() {
+        BigInteger x = BigInteger.ONE.shiftLeft(32 * 300).subtract(BigInteger.ONE);
+        BigInteger y = BigInteger.ONE.shiftLeft(32 * 257).subtract(BigInteger.ONE);
+        assertProduct(x, y);
+        assertProduct(x, x);
+    }
+
+    @Test
+    public void multiply_toom_cook_3() {
+        assertMultiply(32 * 600, 32 * 600);
+        assertMultiply(32 * 1000, 32 * 700);
+    }
+
+    @Test
+    public void multiply_toom_cook_3_negative() {
+        BigInteger x = randomHarmony(32 * 500).negate();
+        BigInteger y = randomHarmony(32 * 600);
+        assertProduct(x, y);
+        assertProduct(x, y.negate());
+    }
+
+    @Test
+    public void multiply_unbalanced() {
+        assertMultiply(32 * 3125, 32 * 500);
+        assertMultiply(32 * 1000, 32 * 499);
+        BigInteger x = randomHarmony(32 * 9000).negate();
+        BigInteger y = randomHarmony(32 * 2000);
+        assertProduct(x, y);
+        assertEquals(x.multiply(y), x.parallelMultiply(y));
+    }
+
+    @Test
+    public void multiply_number_theoretic_transform() {
+        assertMultiply(32 * 4000, 32 * 5000);
+    }
+
+    @Test
+    public void multiply_number_theoretic_transform_negative() {
+        BigInteger x = randomHarmony(32 * 4000).negate();
+        BigInteger y = randomHarmony(32 * 4000);
+        assertProduct(x, y);
+        assertProduct(x, y.negate());
+    }
+
+    @Test
+    public void square() {
+        int[] bitLengths = { 32 * 10, 32 * 200, 32 * 500, 32 * 4000 };
+        for (int bitLength : bitLengths) {
+            BigInteger x = randomHarmony(bitLength).negate();
+            java.math.BigInteger expected = jdk(x).multiply(jdk(x));
+            assertEquals(expected, jdk(x.multiply(x)));
+            assertEquals(expected, jdk(x.pow(2)));
+        }
+    }
+
+    @Test
+    public void parallel_multiply() {
+        int[] bitLengths = { 32 * 10, 32 * 100, 32 * 2000, 32 * 5000 };
+        for (int bitLength : bitLengths) {
+            BigInteger x = randomHarmony(bitLength);
+            BigInteger y = randomHarmony(bitLength).negate();
+            assertEquals(x.multiply(y), x.parallelMultiply(y));
+        }
+    }
+
+    void assertMultiply(int bitLength1, int bitLength2) {
+        assertProduct(randomHarmony(bitLength1), randomHarmony(bitLength2));
+    }
+
+    static void assertProduct(BigInteger x, BigInteger y) {
+        java.math.BigInteger expected = jdk(x).multiply(jdk(y));
+        assertEquals(expected, jdk(x.multiply(y)));
+        assertEquals(expected, jdk(y.multiply(x)));
+    }
+
+    static BigInteger randomHarmony(int bitLength) {
+        return new BigInteger(bitLength, random);
+    }
+
+    static java.math.BigInteger jdk(BigInteger x) {
+        return new java.math.BigInteger(x.toByteArray());
+    }
+
+}
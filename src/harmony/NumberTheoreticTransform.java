@@ -0,0 +1,363 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package harmony;
+
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Static library that provides the multiplication of very large
+ * {@link BigInteger} numbers by means of the number-theoretic transform.
+ * <p>
+ * The digits of both factors are convolved modulo three primes of the form
+ * {@code c * 2<sup>k</sup> + 1} which are smaller than {@code 2<sup>31</sup>},
+ * and the exact convolution is recovered with the Chinese Remainder Theorem
+ * (Garner's algorithm). The product of the three primes exceeds
+ * {@code 2<sup>90</sup>}, which bounds every coefficient of the convolution
+ * of two numbers of up to {@link #maxLength} digits.
+ * <p>
+ * All the modular products use the Montgomery reduction with
+ * {@code R = 2<sup>32</sup>}.
+ */
+class NumberTheoreticTransform {
+
+    /** Just to denote that this class can't be instantiated. */
+    private NumberTheoreticTransform() {}
+
+    /** The primes used for the transforms. */
+    private static final int primes[] = { 2013265921, 1811939329, 469762049 };
+
+    /** A primitive root for each prime of {@link #primes}. */
+    private static final int primitiveRoots[] = { 31, 13, 3 };
+
+    /**
+     * The largest supported length in digits of the product, this is the
+     * largest power of two that divides {@code p - 1} for all the primes.
+     */
+    static final int maxLength = 1 << 26;
+
+    /** {@code -p<sup>-1</sup> (mod 2<sup>32</sup>)} for each prime. */
+    private static final int montgomeryN[] = new int[primes.length];
+
+    /** {@code p[0]<sup>-1</sup> (mod p[1])} used by Garner's algorithm. */
+    private static final long inverse01;
+
+    /** {@code (p[0]*p[1])<sup>-1</sup> (mod p[2])} used by Garner's algorithm. */
+    private static final long inverse012;
+
+    static {
+        for (int i = 0; i < primes.length; i++) {
+            int p = primes[i];
+            // Newton iteration, each step doubles the correct low bits
+            int inv = p;
+            for (int j = 0; j < 5; j++) {
+                inv *= 2 - p * inv;
+            }
+            montgomeryN[i] = -inv;
+        }
+        inverse01 = modPow(primes[0] % primes[1], primes[1] - 2, primes[1]);
+        long p01 = ((long) primes[0] * primes[1]) % primes[2];
+        inverse012 = modPow(p01, primes[2] - 2, primes[2]);
+    }
+
+    /**
+     * Multiplies two positive numbers through the number-theoretic transform.
+     * The sign of the result is computed from the signs of the factors.
+     *
+     * @param a first factor of the product
+     * @param b second factor of the product
+     * @return {@code a * b}
+     * @see Multiplication#multiply(BigInteger, BigInteger)
+     */
+    static BigInteger multiply(BigInteger a, BigInteger b) {
+        return multiply(a, b, false);
+    }
+
+    /**
+     * Multiplies two numbers through the number-theoretic transform. When
+     * {@code parallel} is set, the convolutions modulo each prime are
+     * computed concurrently in the common {@code ForkJoinPool}.
+     *
+     * @see #multiply(BigInteger, BigInteger)
+     */
+    static BigInteger multiply(BigInteger a, BigInteger b, boolean parallel) {
+        // PRE: a.numberLength + b.numberLength <= maxLength
+        int aLen = a.numberLength;
+        int bLen = b.numberLength;
+        int resLength = aLen + bLen;
+        boolean square = (a == b);
+        int residues[][] = new int[primes.length][];
+
+        if (parallel) {
+            Convolution tasks[] = new Convolution[primes.length - 1];
+            for (int i = 0; i < tasks.length; i++) {
+                tasks[i] = new Convolution(a, b, i);
+                tasks[i].fork();
+            }
+            residues[primes.length - 1] = convolution(a, b, primes.length - 1);
+            for (int i = 0; i < tasks.length; i++) {
+                residues[i] = tasks[i].join();
+            }
+        } else {
+            int transformLength = transformLength(resLength);
+            int fa[] = new int[transformLength];
+            int fb[] = square ? fa : new int[transformLength];
+            for (int i = 0; i < primes.length; i++) {
+                residues[i] = convolution(a.digits, aLen, b.digits, bLen, fa, fb,
+                        square, i);
+            }
+        }
+        int resDigits[] = new int[resLength];
+        chineseRemainder(residues, resLength - 1, resDigits);
+        BigInteger result = new BigInteger(a.sign * b.sign, resLength, resDigits);
+        result.cutOffLeadingZeroes();
+        return result;
+    }
+
+    /** Returns the smallest power of two not less than {@code resLength - 1}. */
+    private static int transformLength(int resLength) {
+        int transformLength = Integer.highestOneBit(resLength - 1);
+        if (transformLength < resLength - 1) {
+            transformLength <<= 1;
+        }
+        return transformLength;
+    }
+
+    /**
+     * The convolution modulo one of the primes, computed in the common
+     * {@code ForkJoinPool}.
+     */
+    private static final class Convolution extends RecursiveTask<int[]> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final BigInteger a;
+
+        private final BigInteger b;
+
+        private final int index;
+
+        Convolution(BigInteger a, BigInteger b, int index) {
+            this.a = a;
+            this.b = b;
+            this.index = index;
+        }
+
+        @Override
+        protected int[] compute() {
+            return convolution(a, b, index);
+        }
+    }
+
+    /**
+     * Computes the convolution of the digits of {@code a} and {@code b}
+     * modulo the prime {@code primes[index]} with its own work arrays.
+     */
+    private static int[] convolution(BigInteger a, BigInteger b, int index) {
+        boolean square = (a == b);
+        int transformLength = transformLength(a.numberLength + b.numberLength);
+        int fa[] = new int[transformLength];
+        int fb[] = square ? fa : new int[transformLength];
+        return convolution(a.digits, a.numberLength, b.digits, b.numberLength,
+                fa, fb, square, index);
+    }
+
+    /**
+     * Computes the cyclic convolution of the digits of {@code a} and
+     * {@code b} modulo the prime {@code primes[index]}.
+     *
+     * @param fa a work array with the length of the transform
+     * @param fb a work array with the length of the transform, the same as
+     *        {@code fa} when squaring
+     * @return the {@code aLen + bLen - 1} coefficients of the convolution
+     */
+    private static int[] convolution(int a[], int aLen, int b[], int bLen,
+                                     int fa[], int fb[], boolean square,
+                                     int index) {
+        int p = primes[index];
+        int n = montgomeryN[index];
+        int length = fa.length;
+        long r = (1L << 32) % p; // R (mod p)
+        long r2 = (r * r) % p; // R^2 (mod p)
+
+        // the roots of unity are kept in Montgomery form
+        int half = length >> 1;
+        int roots[] = new int[Math.max(half, 1)];
+        int inverseRoots[] = new int[Math.max(half, 1)];
+        long w = modPow(primitiveRoots[index], (p - 1) / length, p);
+        long wInv = modPow(w, p - 2, p);
+        long root = r;
+        long inverseRoot = r;
+        int wMont = montgomery((int) w, (int) r2, p, n);
+        int wInvMont = montgomery((int) wInv, (int) r2, p, n);
+        for (int i = 0; i < half; i++) {
+            roots[i] = (int) root;
+            inverseRoots[i] = (int) inverseRoot;
+            root = montgomery((int) root, wMont, p, n);
+            inverseRoot = montgomery((int) inverseRoot, wInvMont, p, n);
+        }
+
+        load(fa, a, aLen, p);
+        forward(fa, roots, p, n);
+        if (!square) {
+            load(fb, b, bLen, p);
+            forward(fb, roots, p, n);
+        }
+        for (int i = 0; i < length; i++) {
+            fa[i] = montgomery(fa[i], fb[i], p, n);
+        }
+        inverse(fa, inverseRoots, p, n);
+
+        // each coefficient carries a factor length * R^-1 to be removed
+        long scale = (r2 * modPow(length, p - 2, p)) % p;
+        int resLength = aLen + bLen - 1;
+        int res[] = new int[resLength];
+        for (int i = 0; i < resLength; i++) {
+            res[i] = montgomery(fa[i], (int) scale, p, n);
+        }
+        return res;
+    }
+
+    /** Stores the digits of {@code src} reduced modulo {@code p} in {@code dest}. */
+    private static void load(int dest[], int src[], int srcLength, int p) {
+        int i;
+        for (i = 0; i < srcLength; i++) {
+            dest[i] = (int) ((src[i] & 0xFFFFFFFFL) % p);
+        }
+        for (; i < dest.length; i++) {
+            dest[i] = 0;
+        }
+    }
+
+    /**
+     * Performs an in place forward transform with the Gentleman-Sande
+     * butterfly. The result is left in bit reversed order.
+     */
+    private static void forward(int a[], int roots[], int p, int n) {
+        int length = a.length;
+        for (int len = length; len >= 2; len >>= 1) {
+            int half = len >> 1;
+            int step = length / len;
+            for (int start = 0; start < length; start += len) {
+                for (int j = 0, k = 0; j < half; j++, k += step) {
+                    int u = a[start + j];
+                    int v = a[start + j + half];
+                    int sum = u - (p - v);
+                    a[start + j] = (sum < 0) ? sum + p : sum;
+                    int diff = u - v;
+                    a[start + j + half] = montgomery((diff < 0) ? diff + p : diff,
+                            roots[k], p, n);
+                }
+            }
+        }
+    }
+
+    /**
+     * Performs an in place inverse transform with the Cooley-Tukey
+     * butterfly. The input is expected in bit reversed order and the result
+     * is left in natural order, not scaled by the inverse of the length.
+     */
+    private static void inverse(int a[], int inverseRoots[], int p, int n) {
+        int length = a.length;
+        for (int len = 2; len <= length; len <<= 1) {
+            int half = len >> 1;
+            int step = length / len;
+            for (int start = 0; start < length; start += len) {
+                for (int j = 0, k = 0; j < half; j++, k += step) {
+                    int u = a[start + j];
+                    int v = montgomery(a[start + j + half], inverseRoots[k], p, n);
+                    int sum = u - (p - v);
+                    a[start + j] = (sum < 0) ? sum + p : sum;
+                    int diff = u - v;
+                    a[start + j + half] = (diff < 0) ? diff + p : diff;
+                }
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the exact convolution from its residues with Garner's
+     * algorithm and propagates the carries to get the digits of the product.
+     *
+     * @param residues the convolutions modulo each prime
+     * @param length the number of coefficients of the convolution
+     * @param res the digits of the product, of length {@code length + 1}
+     */
+    private static void chineseRemainder(int residues[][], int length, int res[]) {
+        long p0 = primes[0];
+        long p1 = primes[1];
+        long p2 = primes[2];
+        long p01 = p0 * p1;
+        long p01Lo = p01 & 0xFFFFFFFFL;
+        long p01Hi = p01 >>> 32;
+        long p01Mod2 = p01 % p2;
+        int r0[] = residues[0];
+        int r1[] = residues[1];
+        int r2[] = residues[2];
+        // carries for the positions i, i + 1 and i + 2
+        long acc0 = 0;
+        long acc1 = 0;
+        long acc2 = 0;
+
+        for (int i = 0; i < length; i++) {
+            long x0 = r0[i];
+            // x = x0 + p0 * t, with t = (x1 - x0) / p0 (mod p1)
+            long t = ((r1[i] - x0 % p1 + p1) * inverse01) % p1;
+            long x01 = x0 + p0 * t;
+            // x = x01 + p0 * p1 * u, with u = (x2 - x01) / (p0 * p1) (mod p2)
+            long u = (((r2[i] - x01 % p2 + p2) % p2) * inverse012) % p2;
+            long lo = p01Lo * u + (x01 & 0xFFFFFFFFL);
+            long hi = p01Hi * u + (x01 >>> 32) + (lo >>> 32);
+            acc0 += lo & 0xFFFFFFFFL;
+            acc1 += hi & 0xFFFFFFFFL;
+            acc2 += hi >>> 32;
+            res[i] = (int) acc0;
+            acc0 = acc1 + (acc0 >>> 32);
+            acc1 = acc2;
+            acc2 = 0;
+        }
+        res[length] = (int) acc0;
+    }
+
+    /**
+     * Computes the Montgomery product {@code a * b * 2<sup>-32</sup> (mod p)}.
+     *
+     * @param a a number in {@code [0, p)}
+     * @param b a number in {@code [0, p)}
+     * @param n {@code -p<sup>-1</sup> (mod 2<sup>32</sup>)}
+     */
+    private static int montgomery(int a, int b, int p, int n) {
+        long t = (long) a * b;
+        long m = ((int) t * n) & 0xFFFFFFFFL;
+        long u = (t + m * p) >>> 32;
+        return (int) ((u >= p) ? u - p : u);
+    }
+
+    /** Computes {@code base<sup>exp</sup> (mod p)} for a prime {@code p < 2<sup>31</sup>}. */
+    private static long modPow(long base, long exp, long p) {
+        long res = 1;
+        base %= p;
+        for (; exp > 0; exp >>= 1) {
+            if ((exp & 1) != 0) {
+                res = (res * base) % p;
+            }
+            base = (base * base) % p;
+        }
+        return res;
+    }
+
+}
@@ -202,12 +202,8 @@ class Primality {
         if ((n.numberLength == 1) && ((n.digits[0] & 0XFFFFFC00) == 0)) {
             return (Arrays.binarySearch(primes, n.digits[0]) >= 0);
         }
-        // To check if 'n' is divisible by some prime of the table
-        for (int i = 1; i < primes.length; i++) {
-            if (Division.remainderArrayByInt(n.digits, n.numberLength,
-                    primes[i]) == 0) {
-                return false;
-            }
+        if (hasSmallFactor(n)) {
+            return false;
         }
         // To set the number of iterations necessary for Miller-Rabin test
         int i;
@@ -221,6 +217,337 @@ class Primality {
         return millerRabin(n, certainty);
     }
 
+    /**
+     * The Baillie-PSW primality test: a strong probable prime test to base
+     * {@code 2} followed by a strong Lucas probable prime test, after the
+     * trial division by the primes of the table. No composite number which
+     * passes both tests is known, and none exists below
+     * {@code 2<sup>64</sup>}. Both tests run on the Montgomery's arithmetic
+     * of a single {@link MontgomeryContext} and cost together about three
+     * modular exponentiations.
+     *
+     * @see BigInteger#isProbablePrimeBPSW()
+     * @param n the input number to be tested.
+     * @return {@code false} if the number is definitely composite, otherwise
+     *         {@code true}.
+     * @ar.org.fitc.ref "R. Baillie, S. Wagstaff - Lucas Pseudoprimes",
+     *                  Mathematics of Computation 35 (1980).
+     */
+    static boolean bailliePSW(BigInteger n) {
+        // PRE: n >= 0
+        if ((n.numberLength == 1) && ((n.digits[0] & 0XFFFFFC00) == 0)) {
+            return (Arrays.binarySearch(primes, n.digits[0]) >= 0);
+        }
+        if (!n.testBit(0) || hasSmallFactor(n)) {
+            return false;
+        }
+        MontgomeryContext context = new MontgomeryContext(n);
+        return strongProbablePrime(context) && strongLucasProbablePrime(context);
+    }
+
+    /** @return {@code true} if {@code n} is divisible by some odd prime of the table */
+    private static boolean hasSmallFactor(BigInteger n) {
+        for (int i = 1; i < primes.length; i++) {
+            if (Division.remainderArrayByInt(n.digits, n.numberLength,
+                    primes[i]) == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The strong probable prime test to base {@code 2}, one round of the
+     * Miller-Rabin test.
+     *
+     * @param context the Montgomery context of the odd number to be tested.
+     * @return {@code false} if the number is definitely composite.
+     */
+    private static boolean strongProbablePrime(MontgomeryContext context) {
+        BigInteger n = context.modulus;
+        BigInteger n_minus_1 = n.subtract(BigInteger.ONE);
+        // (q,k) such that: n-1 = q * 2^k and q is odd
+        int k = n_minus_1.getLowestSetBit();
+        BigInteger q = n_minus_1.shiftRight(k);
+        // y = 2^q in Montgomery form, compared with the forms of 1 and -1
+        BigInteger y = context.montgomeryPow(BigInteger.valueOf(2), q);
+        BigInteger one = context.one;
+        BigInteger minusOne = n.subtract(one);
+        if (y.equals(one) || y.equals(minusOne)) {
+            return true;
+        }
+        for (int j = 1; j < k; j++) {
+            y = context.modMul(y, y);
+            if (y.equals(minusOne)) {
+                return true;
+            }
+            if (y.equals(one)) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The strong Lucas probable prime test with the parameters of Selfridge:
+     * {@code D} is the first of {@code 5, -7, 9, -11, ...} whose Jacobi
+     * symbol {@code (D/n)} is {@code -1}, {@code P = 1} and
+     * {@code Q = (1 - D) / 4}. With {@code n + 1 = d * 2<sup>s</sup>} and
+     * {@code d} odd, the number is a probable prime if
+     * {@code U<sub>d</sub> = 0} or {@code V<sub>d*2^r</sub> = 0 (mod n)}
+     * for some {@code 0 <= r < s}. The sequences are computed in
+     * Montgomery form with the doubling formulas
+     * {@code U<sub>2k</sub> = U<sub>k</sub> V<sub>k</sub>} and
+     * {@code V<sub>2k</sub> = V<sub>k</sub><sup>2</sup> - 2Q<sup>k</sup>}.
+     *
+     * @param context the Montgomery context of the odd number to be tested,
+     *            which has no small factor.
+     * @return {@code false} if the number is definitely composite.
+     */
+    private static boolean strongLucasProbablePrime(MontgomeryContext context) {
+        BigInteger n = context.modulus;
+        int d = 5;
+        int jacobi;
+        for (int i = 0; (jacobi = jacobi(d, n)) != -1; i++) {
+            if (jacobi == 0) {
+                // n > |d| as it has no small factor
+                return false;
+            }
+            // there is no such D for a square, but a prime has one among the first
+            if ((i == 20) && isSquare(n)) {
+                return false;
+            }
+            d = (d > 0) ? -d - 2 : -d + 2;
+        }
+        int q = (1 - d) / 4;
+        int k = n.numberLength;
+        int m[] = n.digits;
+        int n2 = context.n2;
+        // U_1 = 1, V_1 = P = 1, Q^1 = Q; the products by D and Q are
+        // computed with additions, as they are small
+        int one[] = Division.toDigits(context.one, k);
+        int u[] = one.clone();
+        int v[] = one.clone();
+        int qPow[] = new int[k];
+        multiplyMod(one, q, m, k, qPow, new int[k]);
+        int temp[] = new int[k];
+        int temp2[] = new int[k];
+        int t[] = new int[Division.monSquareWorkLength(k)];
+        BigInteger n_plus_1 = n.add(BigInteger.ONE);
+        int s = n_plus_1.getLowestSetBit();
+        BigInteger exponent = n_plus_1.shiftRight(s);
+        for (int i = exponent.bitLength() - 2; i >= 0; i--) {
+            // U_2k = U_k V_k, V_2k = V_k^2 - 2Q^k, Q^2k = (Q^k)^2
+            Division.monPro(u, v, m, k, n2, t, u);
+            Division.monSquare(v, m, k, n2, t, v);
+            subtractMod(v, qPow, m, k);
+            subtractMod(v, qPow, m, k);
+            squareQPow(qPow, q, one, m, k, n2, t);
+            if (BitLevel.testBit(exponent, i)) {
+                // U_k+1 = (P U_k + V_k) / 2, V_k+1 = (D U_k + P V_k) / 2, Q^k+1 = Q^k Q
+                multiplyMod(u, d, m, k, temp, temp2);
+                addMod(u, v, m, k);
+                halve(u, m, k);
+                addMod(v, temp, m, k);
+                halve(v, m, k);
+                multiplyMod(qPow, q, m, k, temp, temp2);
+                System.arraycopy(temp, 0, qPow, 0, k);
+            }
+        }
+        if (isZero(u, k) || isZero(v, k)) {
+            return true;
+        }
+        for (int r = 1; r < s; r++) {
+            Division.monSquare(v, m, k, n2, t, v);
+            subtractMod(v, qPow, m, k);
+            subtractMod(v, qPow, m, k);
+            if (isZero(v, k)) {
+                return true;
+            }
+            squareQPow(qPow, q, one, m, k, n2, t);
+        }
+        return false;
+    }
+
+    /**
+     * Squares the Montgomery form {@code qPow} of a power of {@code q}; when
+     * {@code q = -1} the square is {@code one} and no product is needed.
+     */
+    private static void squareQPow(int qPow[], int q, int one[], int m[], int k,
+            int n2, int t[]) {
+        if (q == -1) {
+            System.arraycopy(one, 0, qPow, 0, k);
+        } else {
+            Division.monSquare(qPow, m, k, n2, t, qPow);
+        }
+    }
+
+    /**
+     * Computes {@code res = c * a mod m} with doublings and additions, with
+     * {@code a} in {@code [0, m)} and a small {@code c}.
+     *
+     * @param temp a work area of {@code k} digits
+     */
+    private static void multiplyMod(int a[], int c, int m[], int k, int res[],
+            int temp[]) {
+        // PRE: c != Integer.MIN_VALUE
+        System.arraycopy(a, 0, temp, 0, k);
+        Arrays.fill(res, 0, k, 0);
+        for (int abs = Math.abs(c); abs != 0; abs >>>= 1) {
+            if ((abs & 1) != 0) {
+                addMod(res, temp, m, k);
+            }
+            if (abs > 1) {
+                addMod(temp, temp, m, k);
+            }
+        }
+        if ((c < 0) && !isZero(res, k)) {
+            // res = m - res
+            long borrow = 0;
+            for (int i = 0; i < k; i++) {
+                borrow += (m[i] & 0xFFFFFFFFL) - (res[i] & 0xFFFFFFFFL);
+                res[i] = (int) borrow;
+                borrow >>= 32;
+            }
+        }
+    }
+
+    /**
+     * Returns the Jacobi symbol {@code (a/n)}.
+     *
+     * @param a any small number.
+     * @param n an odd positive number.
+     * @return {@code -1}, {@code 0} or {@code 1}.
+     */
+    static int jacobi(int a, BigInteger n) {
+        // PRE: n odd positive
+        int res = 1;
+        int nMod8 = n.digits[0] & 7;
+        long b = a;
+        if (b < 0) {
+            // (-1/n) = -1 if n = 3 (mod 4)
+            b = -b;
+            if ((nMod8 & 3) == 3) {
+                res = -res;
+            }
+        }
+        if (b == 0) {
+            return n.isOne() ? 1 : 0;
+        }
+        while ((b & 1) == 0) {
+            // (2/n) = -1 if n = 3 or 5 (mod 8)
+            b >>= 1;
+            if ((nMod8 == 3) || (nMod8 == 5)) {
+                res = -res;
+            }
+        }
+        // the quadratic reciprocity gives (b/n) = (n mod b / b) for odd b
+        if (((b & 3) == 3) && ((nMod8 & 3) == 3)) {
+            res = -res;
+        }
+        long r = Division.remainder(n, (int) b) & 0xFFFFFFFFL;
+        return res * jacobi(r, b);
+    }
+
+    /** @return the Jacobi symbol {@code (a/n)} of {@code 0 <= a} and an odd positive {@code n} */
+    private static int jacobi(long a, long n) {
+        int res = 1;
+        a %= n;
+        while (a != 0) {
+            while ((a & 1) == 0) {
+                a >>= 1;
+                long nMod8 = n & 7;
+                if ((nMod8 == 3) || (nMod8 == 5)) {
+                    res = -res;
+                }
+            }
+            long swap = a;
+            a = n;
+            n = swap;
+            if (((a & 3) == 3) && ((n & 3) == 3)) {
+                res = -res;
+            }
+            a %= n;
+        }
+        return (n == 1) ? res : 0;
+    }
+
+    /** @return {@code true} if {@code n} is the square of an integer */
+    private static boolean isSquare(BigInteger n) {
+        // Newton's iteration from above converges to floor(sqrt(n))
+        BigInteger x = BigInteger.getPowerOfTwo((n.bitLength() + 1) >> 1);
+        while (true) {
+            BigInteger y = x.add(n.divide(x)).shiftRight(1);
+            if (y.compareTo(x) >= 0) {
+                return x.multiply(x).equals(n);
+            }
+            x = y;
+        }
+    }
+
+    /** Computes {@code a = (a + b) mod m}, with {@code a} and {@code b} in {@code [0, m)}. */
+    private static void addMod(int a[], int b[], int m[], int k) {
+        long carry = 0;
+        for (int i = 0; i < k; i++) {
+            carry += (a[i] & 0xFFFFFFFFL) + (b[i] & 0xFFFFFFFFL);
+            a[i] = (int) carry;
+            carry >>>= 32;
+        }
+        if ((carry != 0) || (Elementary.compareArrays(a, m, k) >= 0)) {
+            long borrow = 0;
+            for (int i = 0; i < k; i++) {
+                borrow += (a[i] & 0xFFFFFFFFL) - (m[i] & 0xFFFFFFFFL);
+                a[i] = (int) borrow;
+                borrow >>= 32;
+            }
+        }
+    }
+
+    /** Computes {@code a = (a - b) mod m}, with {@code a} and {@code b} in {@code [0, m)}. */
+    private static void subtractMod(int a[], int b[], int m[], int k) {
+        long borrow = 0;
+        for (int i = 0; i < k; i++) {
+            borrow += (a[i] & 0xFFFFFFFFL) - (b[i] & 0xFFFFFFFFL);
+            a[i] = (int) borrow;
+            borrow >>= 32;
+        }
+        if (borrow != 0) {
+            long carry = 0;
+            for (int i = 0; i < k; i++) {
+                carry += (a[i] & 0xFFFFFFFFL) + (m[i] & 0xFFFFFFFFL);
+                a[i] = (int) carry;
+                carry >>>= 32;
+            }
+        }
+    }
+
+    /** Computes {@code a = a / 2 mod m}, with {@code a} in {@code [0, m)} and {@code m} odd. */
+    private static void halve(int a[], int m[], int k) {
+        long carry = 0;
+        if ((a[0] & 1) != 0) {
+            // a + m is even
+            for (int i = 0; i < k; i++) {
+                carry += (a[i] & 0xFFFFFFFFL) + (m[i] & 0xFFFFFFFFL);
+                a[i] = (int) carry;
+                carry >>>= 32;
+            }
+        }
+        for (int i = 0; i < k - 1; i++) {
+            a[i] = (a[i] >>> 1) | (a[i + 1] << 31);
+        }
+        a[k - 1] = (a[k - 1] >>> 1) | ((int) carry << 31);
+    }
+
+    /** @return {@code true} if the first {@code k} digits of {@code a} are zero */
+    private static boolean isZero(int a[], int k) {
+        for (int i = 0; i < k; i++) {
+            if (a[i] != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * The Miller-Rabin primality test.
      *
@@ -33,6 +33,39 @@ public class Primality_Test {
         assertPercentPrime(80);
     }
 
+    @Test
+    public void baillie_psw_pseudoprimes() {
+        // strong pseudoprimes to base 2, Carmichael numbers and strong Lucas pseudoprimes
+        String[] composites = { "2047", "3277", "4033", "4681", "8321", "1373653",
+                "25326001", "3215031751", "3825123056546413051", "561", "1105", "1729",
+                "41041", "5459", "5777", "10877", "16109", "18971", "22499",
+                "318665857834031151167461" };
+        for (String composite : composites) {
+            assertFalse(new BigInteger(composite).isProbablePrimeBPSW(), composite);
+        }
+        for (int exponent : new int[] { 521, 607, 1279, 2203 }) {
+            BigInteger mersenne = BigInteger.ONE.shiftLeft(exponent).subtract(BigInteger.ONE);
+            assertTrue(mersenne.isProbablePrimeBPSW(), "2^" + exponent + "-1");
+            assertTrue(mersenne.negate().isProbablePrimeBPSW(), "-2^" + exponent + "+1");
+            assertFalse(mersenne.multiply(mersenne).isProbablePrimeBPSW(), "(2^" + exponent + "-1)^2");
+        }
+    }
+
+    @Test
+    public void baillie_psw_random() {
+        for (int i=0; i<20000; i++) {
+            int bitLength = 2 + random.nextInt(i < 18000 ? 40 : 600);
+            java.math.BigInteger jdk = randomJdk(bitLength);
+            BigInteger harmony = new BigInteger(jdk.toString());
+            assertEquals(jdk.isProbablePrime(certainty), harmony.isProbablePrimeBPSW(), jdk.toString());
+        }
+        for (int i=0; i<50; i++) {
+            java.math.BigInteger prime = java.math.BigInteger.probablePrime(20 + random.nextInt(1000), random);
+            assertTrue(new BigInteger(prime.toString()).isProbablePrimeBPSW(), prime.toString());
+            assertFalse(new BigInteger(prime.multiply(prime).toString()).isProbablePrimeBPSW(), prime.toString());
+        }
+    }
+
     void assertPercentPrime(int bitLength) {
         double harmony = harmonyPercentPrime(bitLength);
         double jdk = jdkPercentPrime(bitLength);
@@ -0,0 +1,173 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package harmony;
+
+import harmony.internal.nls.Messages;
+
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Computes the RSA private operation {@code x<sup>d</sup> mod n}, with
+ * {@code n = p * q}, from the Chinese remainder theorem form of the key:
+ * the primes {@code p} and {@code q}, the exponents
+ * {@code dP = d mod (p - 1)} and {@code dQ = d mod (q - 1)}, and
+ * {@code qInv = q<sup>-1</sup> mod p}.
+ * <p>
+ * The power is computed as {@code x<sup>dP</sup> mod p} and
+ * {@code x<sup>dQ</sup> mod q}, two exponentiations of half the size which
+ * cost about a quarter of {@code x.modPow(d, n)}, combined with the Garner's
+ * formula {@code m2 + q * (qInv * (m1 - m2) mod p)}. The Montgomery contexts
+ * of {@code p} and {@code q} are computed once, when the context is created.
+ * The exponentiations take a time which doesn't depend on the bits of the
+ * exponents, as in {@link MontgomeryContext#modPowSecret(BigInteger, BigInteger)}.
+ * <p>
+ * Instances are immutable and can be shared by several threads.
+ *
+ * @see MontgomeryContext
+ */
+public final class RsaCrtContext {
+
+    /** The Montgomery context of the prime {@code p}. */
+    private final MontgomeryContext pContext;
+
+    /** The Montgomery context of the prime {@code q}. */
+    private final MontgomeryContext qContext;
+
+    /** The exponent {@code dP = d mod (p - 1)}. */
+    private final BigInteger dP;
+
+    /** The exponent {@code dQ = d mod (q - 1)}. */
+    private final BigInteger dQ;
+
+    /** The Montgomery form modulo {@code p} of {@code qInv = q<sup>-1</sup> mod p}. */
+    private final BigInteger qInvMontgomery;
+
+    /** The modulus {@code n = p * q}. */
+    private final BigInteger modulus;
+
+    /**
+     * Creates the context of the given private key.
+     *
+     * @param p
+     *            the first prime.
+     * @param q
+     *            the second prime.
+     * @param dP
+     *            the exponent {@code d mod (p - 1)}.
+     * @param dQ
+     *            the exponent {@code d mod (q - 1)}.
+     * @param qInv
+     *            the coefficient {@code q<sup>-1</sup> mod p}.
+     * @throws NullPointerException
+     *             if an argument is {@code null}.
+     * @throws ArithmeticException
+     *             if {@code p} or {@code q} is not positive and odd, or if
+     *             {@code dP < 0} or {@code dQ < 0}.
+     */
+    public RsaCrtContext(BigInteger p, BigInteger q, BigInteger dP, BigInteger dQ,
+            BigInteger qInv) {
+        if ((dP.sign < 0) || (dQ.sign < 0)) {
+            // math.16=Negative exponent
+            throw new ArithmeticException(Messages.getString("math.16")); //$NON-NLS-1$
+        }
+        pContext = new MontgomeryContext(p);
+        qContext = new MontgomeryContext(q);
+        this.dP = dP;
+        this.dQ = dQ;
+        qInvMontgomery = pContext.toMontgomery(qInv);
+        modulus = p.multiply(q);
+    }
+
+    /**
+     * Returns the modulus {@code n = p * q} of the key.
+     *
+     * @return the modulus.
+     */
+    public BigInteger getModulus() {
+        return modulus;
+    }
+
+    /**
+     * Returns {@code x<sup>d</sup> mod n}, computing the powers modulo
+     * {@code p} and {@code q} one after the other.
+     *
+     * @param x
+     *            the number to raise, usually in the interval {@code [0, n)}.
+     * @return {@code x<sup>d</sup> mod n}.
+     * @throws NullPointerException
+     *             if {@code x == null}.
+     */
+    public BigInteger modPow(BigInteger x) {
+        BigInteger m1 = pContext.modPowSecret(x, dP);
+        BigInteger m2 = qContext.modPowSecret(x, dQ);
+        return combine(m1, m2);
+    }
+
+    /**
+     * Returns {@code x<sup>d</sup> mod n} like {@link #modPow(BigInteger)},
+     * computing the power modulo {@code q} in the common
+     * {@code ForkJoinPool} while the calling thread computes the power
+     * modulo {@code p}.
+     *
+     * @param x
+     *            the number to raise, usually in the interval {@code [0, n)}.
+     * @return {@code x<sup>d</sup> mod n}.
+     * @throws NullPointerException
+     *             if {@code x == null}.
+     */
+    public BigInteger parallelModPow(BigInteger x) {
+        HalfModPow qHalf = new HalfModPow(qContext, x, dQ);
+        qHalf.fork();
+        BigInteger m1 = pContext.modPowSecret(x, dP);
+        return combine(m1, qHalf.join());
+    }
+
+    /**
+     * Returns {@code m2 + q * (qInv * (m1 - m2) mod p)}, the number modulo
+     * {@code n} which is {@code m1} modulo {@code p} and {@code m2} modulo
+     * {@code q}.
+     */
+    private BigInteger combine(BigInteger m1, BigInteger m2) {
+        // the Montgomery product by qInv * R gives qInv * (m1 - m2) mod p
+        BigInteger h = pContext.modMul(qInvMontgomery, m1.subtract(m2));
+        return h.multiply(qContext.modulus).add(m2);
+    }
+
+    /** The power modulo one of the primes, computed in the common {@code ForkJoinPool}. */
+    private static final class HalfModPow extends RecursiveTask<BigInteger> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final MontgomeryContext context;
+
+        private final BigInteger base;
+
+        private final BigInteger exponent;
+
+        HalfModPow(MontgomeryContext context, BigInteger base, BigInteger exponent) {
+            this.context = context;
+            this.base = base;
+            this.exponent = exponent;
+        }
+
+        @Override
+        protected BigInteger compute() {
+            return context.modPowSecret(base, exponent);
+        }
+    }
+}
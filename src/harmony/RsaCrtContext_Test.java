@@ -0,0 +1,49 @@
+package harmony;
+
+import org.junit.jupiter.api.Test;
+
+import static harmony.Multiplication_Test.jdk;
+import static harmony.Multiplication_Test.random;
+import static harmony.Multiplication_Test.randomHarmony;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RsaCrtContext_Test {
+
+    @Test
+    public void mod_pow() {
+        for (int bits : new int[] { 64, 512, 1024 }) {
+            BigInteger p = BigInteger.probablePrime(bits, random);
+            BigInteger q = BigInteger.probablePrime(bits - 7, random);
+            BigInteger e = BigInteger.valueOf(65537);
+            BigInteger phi = p.subtract(BigInteger.ONE).multiply(q.subtract(BigInteger.ONE));
+            if (!phi.gcd(e).isOne()) {
+                continue;
+            }
+            BigInteger d = e.modInverse(phi);
+            BigInteger n = p.multiply(q);
+            RsaCrtContext context = new RsaCrtContext(p, q,
+                    d.mod(p.subtract(BigInteger.ONE)), d.mod(q.subtract(BigInteger.ONE)),
+                    q.modInverse(p));
+            assertEquals(jdk(n), jdk(context.getModulus()));
+            for (BigInteger x : new BigInteger[] { BigInteger.ZERO, BigInteger.ONE, p, q,
+                    n.subtract(BigInteger.ONE), randomHarmony(2 * bits - 8) }) {
+                java.math.BigInteger expected = jdk(x).modPow(jdk(d), jdk(n));
+                assertEquals(expected, jdk(context.modPow(x)));
+                assertEquals(expected, jdk(context.parallelModPow(x)));
+                assertEquals(jdk(x), jdk(context.modPow(x).modPow(e, n)));
+            }
+        }
+    }
+
+    @Test
+    public void invalid_key() {
+        BigInteger p = BigInteger.valueOf(61);
+        BigInteger q = BigInteger.valueOf(53);
+        assertThrows(ArithmeticException.class, () -> new RsaCrtContext(p, BigInteger.valueOf(54),
+                BigInteger.ONE, BigInteger.ONE, BigInteger.ONE));
+        assertThrows(ArithmeticException.class, () -> new RsaCrtContext(p, q,
+                BigInteger.ONE.negate(), BigInteger.ONE, BigInteger.ONE));
+        assertThrows(NullPointerException.class, () -> new RsaCrtContext(p, q,
+                BigInteger.ONE, BigInteger.ONE, null));
+    }
+}
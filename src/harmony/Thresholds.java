@@ -0,0 +1,111 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package harmony;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * Static library that provides the break points between the algorithms
+ * used by {@link BigInteger}, measured in digits (number of {@code int}
+ * elements).
+ * <p>
+ * The value of a break point with key {@code key} is taken from the system
+ * property {@code harmony.math.key} if it is set, otherwise from the
+ * properties file written by {@link Calibration}, otherwise the heuristic
+ * default is used. The properties file is read once, when this class is
+ * initialized. Its location is given by the system property
+ * {@code harmony.math.thresholds}, by default it is the file
+ * {@code .harmony-math.properties} in the home directory of the user.
+ */
+class Thresholds {
+
+    /** Just to denote that this class can't be instantiated. */
+    private Thresholds() {}
+
+    /** The prefix of the system properties which override a break point. */
+    static final String PREFIX = "harmony.math."; //$NON-NLS-1$
+
+    /** The system property with the location of the properties file. */
+    static final String FILE_PROPERTY = PREFIX + "thresholds"; //$NON-NLS-1$
+
+    /** The break points read from the properties file. */
+    private static final Properties calibrated = load();
+
+    /**
+     * Returns the break point with the given key. Values which are not
+     * integers greater than one are ignored, as the recursive algorithms need
+     * at least two digits to split their operands.
+     *
+     * @param key the name of the break point
+     * @param defaultValue the value used when no valid one is configured
+     * @return the configured break point or {@code defaultValue}
+     */
+    static int get(String key, int defaultValue) {
+        String value = null;
+        try {
+            value = System.getProperty(PREFIX + key);
+        } catch (SecurityException e) {
+            // Use the calibrated value
+        }
+        if (value == null) {
+            value = calibrated.getProperty(key);
+        }
+        if (value != null) {
+            try {
+                int threshold = Integer.parseInt(value.trim());
+                if (threshold > 1) {
+                    return threshold;
+                }
+            } catch (NumberFormatException e) {
+                // Use the default value
+            }
+        }
+        return defaultValue;
+    }
+
+    /** @return the location of the properties file */
+    static File file() {
+        String name = System.getProperty(FILE_PROPERTY);
+        return (name != null) ? new File(name)
+                : new File(System.getProperty("user.home"), ".harmony-math.properties"); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+    private static Properties load() {
+        Properties properties = new Properties();
+        try {
+            File file = file();
+            if (file.isFile()) {
+                InputStream in = new FileInputStream(file);
+                try {
+                    properties.load(in);
+                } finally {
+                    in.close();
+                }
+            }
+        } catch (IOException e) {
+            // Use the default values
+        } catch (SecurityException e) {
+            // Use the default values
+        }
+        return properties;
+    }
+}
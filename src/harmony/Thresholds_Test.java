@@ -0,0 +1,36 @@
+package harmony;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class Thresholds_Test {
+
+    @Test
+    public void default_value_without_configuration() {
+        assertEquals(42, Thresholds.get("unknownThreshold", 42));
+    }
+
+    @Test
+    public void system_property_overrides_default_value() {
+        System.setProperty(Thresholds.PREFIX + "testThreshold", "17");
+        try {
+            assertEquals(17, Thresholds.get("testThreshold", 42));
+        } finally {
+            System.clearProperty(Thresholds.PREFIX + "testThreshold");
+        }
+    }
+
+    @Test
+    public void invalid_values_are_ignored() {
+        String[] values = { "", "abc", "1", "0", "-5" };
+        for (String value : values) {
+            System.setProperty(Thresholds.PREFIX + "testThreshold", value);
+            try {
+                assertEquals(42, Thresholds.get("testThreshold", 42));
+            } finally {
+                System.clearProperty(Thresholds.PREFIX + "testThreshold");
+            }
+        }
+    }
+}